@@ -0,0 +1,161 @@
+package com.madeeasy.entity;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.madeeasy.config.IsoInstantSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of the response bodies.
+ * <p>
+ * All mappers write timestamps as ISO-8601 text like Spring Boot configures it. The benchmarks without suffix use
+ * the ObjectMapper defaults of Spring Boot without extra modules, the *Tuned ones add the Blackbird module and
+ * IsoInstantSerializer like JacksonConfiguration does. *Smile writes the list in Smile, the format a client gets with
+ * {@code Accept: application/x-jackson-smile}, and *Gzip compresses the result like Tomcat does for clients sending
+ * {@code Accept-Encoding: gzip}, both with the tuned modules. So the time per operation is the CPU cost of a response
+ * body, and the secondary result {@code bytes} (see {@link BodySize}) is its size on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper tunedMapper;
+    private ObjectMapper smileMapper;
+    private Customer customer;
+    private List<Customer> customers;
+    private Map<String, Object> errorBody;
+
+    @Setup
+    public void setUp() {
+        objectMapper = bootDefaults(Jackson2ObjectMapperBuilder.json()).build();
+        tunedMapper = bootDefaults(Jackson2ObjectMapperBuilder.json()).modulesToInstall(tunedModules()).build();
+        smileMapper = bootDefaults(Jackson2ObjectMapperBuilder.smile()).modulesToInstall(tunedModules()).build();
+        customer = customer(1L);
+        customers = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            customers.add(customer(id));
+        }
+        errorBody = Map.of("error", "Request parameter 'param' is missing.");
+    }
+
+    private static Jackson2ObjectMapperBuilder bootDefaults(Jackson2ObjectMapperBuilder builder) {
+        return builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS);
+    }
+
+    private static Module[] tunedModules() {
+        return new Module[]{
+                new BlackbirdModule(),
+                new SimpleModule("iso-instant").addSerializer(Instant.class, new IsoInstantSerializer())
+        };
+    }
+
+    private static Customer customer(long id) {
+        Instant now = Instant.now();
+        return Customer.builder()
+                .id(id)
+                .name("customer " + id)
+                .email("customer" + id + "@example.com")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] customer(BodySize size) throws Exception {
+        return size.of(objectMapper.writeValueAsBytes(customer));
+    }
+
+    @Benchmark
+    public byte[] hundredCustomers(BodySize size) throws Exception {
+        return size.of(objectMapper.writeValueAsBytes(customers));
+    }
+
+    @Benchmark
+    public byte[] customerTuned(BodySize size) throws Exception {
+        return size.of(tunedMapper.writeValueAsBytes(customer));
+    }
+
+    @Benchmark
+    public byte[] hundredCustomersTuned(BodySize size) throws Exception {
+        return size.of(tunedMapper.writeValueAsBytes(customers));
+    }
+
+    @Benchmark
+    public byte[] hundredCustomersSmile(BodySize size) throws Exception {
+        return size.of(smileMapper.writeValueAsBytes(customers));
+    }
+
+    @Benchmark
+    public byte[] hundredCustomersGzip(BodySize size) throws Exception {
+        return size.of(gzip(tunedMapper, customers));
+    }
+
+    @Benchmark
+    public byte[] hundredCustomersSmileGzip(BodySize size) throws Exception {
+        return size.of(gzip(smileMapper, customers));
+    }
+
+    @Benchmark
+    public byte[] errorBody(BodySize size) throws Exception {
+        return size.of(objectMapper.writeValueAsBytes(errorBody));
+    }
+
+    /**
+     * The size of the last body a benchmark wrote, reported by JMH next to the time per operation. As an EVENTS counter
+     * it is not divided by the operations, and every operation of a benchmark writes a body of the same size.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BodySize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+        byte[] of(byte[] body) {
+            bytes = body.length;
+            return body;
+        }
+    }
+
+    private static byte[] gzip(ObjectMapper mapper, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(gzip, value);
+        }
+        return bytes.toByteArray();
+    }
+}
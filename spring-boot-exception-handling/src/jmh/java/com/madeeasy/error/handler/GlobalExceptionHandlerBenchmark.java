@@ -0,0 +1,157 @@
+package com.madeeasy.error.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madeeasy.error.exception.CustomerNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jakarta.persistence.EntityNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building an error response per exception type.
+ * <p>
+ * The benchmarks without prefix go through {@link GlobalExceptionHandler} as it is and write the problem body with
+ * {@link ProblemJsonHttpMessageConverter}, like a real response. The legacy* benchmarks rebuild the bodies the way the
+ * handler did before the unified error model: a new Map per failure which Jackson then serialized for every response.
+ * problemDetailDatabind writes the same problem with Jackson databind instead of the streaming converter. The
+ * newException* benchmarks compare what creating a not-found exception costs with and without a stack trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+    private ProblemJsonHttpMessageConverter problemWriter;
+    private WebRequest request;
+
+    private MissingServletRequestParameterException missingParameter;
+    private HttpRequestMethodNotSupportedException methodNotSupported;
+    private HttpMessageNotReadableException messageNotReadable;
+    private TypeMismatchException typeMismatch;
+    private CustomerNotFoundException customerNotFound;
+    private Long customerId;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        problemWriter = new ProblemJsonHttpMessageConverter(objectMapper);
+        handler = new GlobalExceptionHandler(new ErrorMetrics(new SimpleMeterRegistry()),
+                problemWriter,
+                new ErrorLogger(5, 10_000),
+                Tracer.NOOP);
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/customers/example"));
+
+        missingParameter = new MissingServletRequestParameterException("param", "int");
+        methodNotSupported = new HttpRequestMethodNotSupportedException("PATCH", List.of("GET", "PUT", "DELETE"));
+        messageNotReadable = new HttpMessageNotReadableException("Unexpected character",
+                new MockHttpInputMessage(new byte[0]));
+        typeMismatch = new TypeMismatchException("abc", Long.class);
+        customerId = 42L;
+        customerNotFound = new CustomerNotFoundException(customerId, false);
+    }
+
+    @Benchmark
+    public byte[] missingParameter() {
+        return write(handler.handleMissingServletRequestParameter(missingParameter, HttpHeaders.EMPTY,
+                HttpStatus.BAD_REQUEST, request));
+    }
+
+    @Benchmark
+    public byte[] legacyMissingParameter() throws Exception {
+        String errorMessage = "Request parameter '" + missingParameter.getParameterName() + "' is missing.";
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", errorMessage);
+        return objectMapper.writeValueAsBytes(new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST).getBody());
+    }
+
+    @Benchmark
+    public byte[] methodNotSupported() {
+        return write(handler.handleHttpRequestMethodNotSupported(methodNotSupported, methodNotSupported.getHeaders(),
+                methodNotSupported.getStatusCode(), request));
+    }
+
+    @Benchmark
+    public byte[] legacyMethodNotSupported() throws Exception {
+        Map<String, Object> errorResponse = Map.of("HTTP method not supported", HttpStatus.METHOD_NOT_ALLOWED.value());
+        return objectMapper.writeValueAsBytes(new ResponseEntity<>(errorResponse, methodNotSupported.getHeaders(),
+                HttpStatus.METHOD_NOT_ALLOWED).getBody());
+    }
+
+    @Benchmark
+    public byte[] messageNotReadable() {
+        return write(handler.handleHttpMessageNotReadable(messageNotReadable, HttpHeaders.EMPTY,
+                HttpStatus.BAD_REQUEST, request));
+    }
+
+    @Benchmark
+    public byte[] legacyMessageNotReadable() throws Exception {
+        Map<String, Object> errorResponse = Map.of("Invalid JSON data in request body", HttpStatus.BAD_REQUEST.value());
+        return objectMapper.writeValueAsBytes(new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST).getBody());
+    }
+
+    @Benchmark
+    public byte[] typeMismatch() {
+        return write(handler.handleTypeMismatch(typeMismatch, HttpHeaders.EMPTY, HttpStatus.BAD_REQUEST, request));
+    }
+
+    @Benchmark
+    public byte[] customerNotFound() {
+        return write(handler.handleNotFound(customerNotFound, request));
+    }
+
+    @Benchmark
+    public byte[] problemDetailDatabind() throws Exception {
+        return objectMapper.writeValueAsBytes(handler.handleNotFound(customerNotFound, request).getBody());
+    }
+
+    @Benchmark
+    public Exception newExceptionStackless() {
+        return new CustomerNotFoundException(customerId, false);
+    }
+
+    @Benchmark
+    public Exception newExceptionWithStackTrace() {
+        return new CustomerNotFoundException(customerId, true);
+    }
+
+    @Benchmark
+    public Exception newExceptionLegacy() {
+        return new EntityNotFoundException("Customer not found: " + customerId);
+    }
+
+    private byte[] write(ResponseEntity<Object> response) {
+        return problemWriter.toBytes((ProblemDetail) response.getBody());
+    }
+}
@@ -0,0 +1,104 @@
+package com.madeeasy.service;
+
+import com.madeeasy.SpringBootExceptionHandlingApplication;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity reads against the {@link ReadModel} summary reads, for one customer and for a page of {@value #PAGE_SIZE}.
+ * Run with the benchmarks profile, its {@code -prof gc} reports the heap allocated per operation
+ * (gc.alloc.rate.norm) next to the time.
+ * <p>
+ * The entity benchmarks bypass the customer cache and go through the repository like an uncached request would,
+ * so all paths pay for one query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerReadModelBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private CustomerSummaryService customerSummaryService;
+    private CustomerRepository customerRepository;
+    private Long existingId;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(SpringBootExceptionHandlingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:read-model;DB_CLOSE_DELAY=-1",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.orm.jpa=WARN",
+                        "--logging.level.org.springframework.transaction=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN");
+        customerService = context.getBean(CustomerService.class);
+        customerSummaryService = context.getBean(CustomerSummaryService.class);
+        customerRepository = context.getBean(CustomerRepository.class);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE * 2; i++) {
+            customers.add(Customer.builder().name("customer " + i).email("customer" + i + "@example.com").build());
+        }
+        existingId = customerService.createCustomers(customers).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object lookupEntity() {
+        return customerRepository.findById(existingId);
+    }
+
+    @Benchmark
+    public Object lookupJpqlSummary() {
+        return customerSummaryService.getCustomerSummary(existingId, ReadModel.JPQL);
+    }
+
+    @Benchmark
+    public Object lookupJdbcSummary() {
+        return customerSummaryService.getCustomerSummary(existingId, ReadModel.JDBC);
+    }
+
+    @Benchmark
+    public Object pageEntity() {
+        return customerService.getCustomersPage(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Object pageJpqlSummary() {
+        return customerSummaryService.getCustomerSummariesPage(null, PAGE_SIZE, ReadModel.JPQL);
+    }
+
+    @Benchmark
+    public Object pageJdbcSummary() {
+        return customerSummaryService.getCustomerSummariesPage(null, PAGE_SIZE, ReadModel.JDBC);
+    }
+}
@@ -0,0 +1,126 @@
+package com.madeeasy.service;
+
+import com.madeeasy.SpringBootExceptionHandlingApplication;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CustomerService CRUD against an embedded in-memory H2 database, started as the real Spring context without the
+ * web layer.
+ * <p>
+ * createCustomersBulk and createCustomerSingle both store {@value #BULK_SIZE} customers per invocation and are
+ * normalized per customer, i.e. they compare the chunked, JDBC batched bulk path with one transaction per insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private CustomerRepository customerRepository;
+    private Long existingId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(SpringBootExceptionHandlingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.orm.jpa=WARN",
+                        "--logging.level.org.springframework.transaction=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN");
+        customerService = context.getBean(CustomerService.class);
+        customerRepository = context.getBean(CustomerRepository.class);
+        existingId = customerService.createCustomer(newCustomer()).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    private Customer newCustomer() {
+        long number = sequence.incrementAndGet();
+        return Customer.builder()
+                .name("customer " + number)
+                .email("customer" + number + "@example.com")
+                .build();
+    }
+
+    @Benchmark
+    public Customer createCustomer() {
+        return customerService.createCustomer(newCustomer());
+    }
+
+    @Benchmark
+    public Customer getCustomerByIdCached() throws Exception {
+        return customerService.getCustomerById(existingId);
+    }
+
+    @Benchmark
+    public Object findByIdUncached() {
+        return customerRepository.findById(existingId);
+    }
+
+    @Benchmark
+    public Customer updateCustomer() {
+        Customer customer = newCustomer();
+        customer.setId(existingId);
+        return customerService.updateCustomer(customer, null);
+    }
+
+    @Benchmark
+    public void createAndDeleteCustomer() {
+        Customer customer = customerService.createCustomer(newCustomer());
+        customerService.deleteCustomer(customer.getId(), null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public List<Customer> createCustomersBulk() {
+        List<Customer> customers = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            customers.add(newCustomer());
+        }
+        return customerService.createCustomers(customers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public Customer createCustomerSingle() {
+        Customer last = null;
+        for (int i = 0; i < BULK_SIZE; i++) {
+            last = customerService.createCustomer(newCustomer());
+        }
+        return last;
+    }
+}
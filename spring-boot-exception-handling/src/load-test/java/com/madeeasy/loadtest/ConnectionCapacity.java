@@ -0,0 +1,150 @@
+package com.madeeasy.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * How the blocking endpoints below /customers and the async ones below /async/customers hold up when there are many
+ * more concurrent clients than request threads.
+ * <p>
+ * Unlike the {@link CustomerScenarios}, which send a fixed number of requests from a few clients, every client here
+ * keeps one connection busy with pages of 500 summaries for a fixed time, and a 503 is an expected answer. Meanwhile a
+ * probe asks /actuator/health every 100 ms: when all request threads sit in JDBC calls, the probe waits in the accept
+ * queue like any other request. A sampler records how many requests were in the database layer at once (connections
+ * in use plus threads waiting for one).
+ * <p>
+ * Both APIs are behind the same admission control, so by default most of the clients beyond the read limit get a fast
+ * 503 on either side. Start the embedded instance with {@code --app.admission.enabled=false} (loadtest.app-args) to
+ * compare the thread models without load shedding.
+ */
+final class ConnectionCapacity {
+
+    private static final String PAGE = "/summaries?size=500";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private ConnectionCapacity() {
+    }
+
+    /**
+     * name in the report and for loadtest.include, and the page every client asks for over and over again
+     */
+    record Endpoint(String name, String path) {
+    }
+
+    static List<Endpoint> endpoints() {
+        return List.of(new Endpoint("capacityBlocking", "/customers" + PAGE),
+                new Endpoint("capacityAsync", "/async/customers" + PAGE));
+    }
+
+    /**
+     * @param requests        answers within the run, whatever their status
+     * @param ok              2xx answers
+     * @param rejected        503 answers, from the admission control, the full async queue or the async timeout
+     * @param other           any other status or an I/O error, these fail the load test
+     * @param firstOther      description of the first of them
+     * @param latencies       of all answers, in nanoseconds
+     * @param probeLatencies  of the health probe, in nanoseconds
+     * @param maxInDatabase   highest number of requests which held or waited for a connection at once
+     */
+    record Result(long requests, long ok, long rejected, long other, String firstOther, Histogram latencies,
+                  Histogram probeLatencies, int maxInDatabase) {
+    }
+
+    static Result run(HttpClient httpClient, String baseUrl, Endpoint endpoint, int clients, Duration duration,
+                      IntSupplier inDatabase) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path())).timeout(REQUEST_TIMEOUT).build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).timeout(REQUEST_TIMEOUT).build();
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder ok = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder other = new LongAdder();
+        AtomicReference<String> firstOther = new AtomicReference<>();
+        Recorder latencies = new Recorder(3);
+        Histogram probeLatencies = new Histogram(3);
+        AtomicInteger maxInDatabase = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>(clients + 2);
+
+        for (int i = 0; i < clients; i++) {
+            threads.add(start("capacity-client-" + i, () -> {
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    try {
+                        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status / 100 == 2) {
+                            ok.increment();
+                        } else if (status == 503) {
+                            rejected.increment();
+                        } else {
+                            other.increment();
+                            firstOther.compareAndSet(null, request.uri() + " -> " + status);
+                        }
+                    } catch (IOException e) {
+                        other.increment();
+                        firstOther.compareAndSet(null, request.uri() + " -> " + e);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    latencies.recordValue(System.nanoTime() - start);
+                }
+            }));
+        }
+        threads.add(start("capacity-probe", () -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                try {
+                    httpClient.send(probe, HttpResponse.BodyHandlers.discarding());
+                } catch (IOException e) {
+                    // the time until the failure is what the probe saw
+                } catch (InterruptedException e) {
+                    return;
+                }
+                probeLatencies.recordValue(System.nanoTime() - start);
+                sleep(100);
+            }
+        }));
+        threads.add(start("capacity-sampler", () -> {
+            while (running.get()) {
+                maxInDatabase.accumulateAndGet(inDatabase.getAsInt(), Math::max);
+                sleep(10);
+            }
+        }));
+
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long requests = ok.sum() + rejected.sum() + other.sum();
+        return new Result(requests, ok.sum(), rejected.sum(), other.sum(), firstOther.get(),
+                latencies.getIntervalHistogram(), probeLatencies, maxInDatabase.get());
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
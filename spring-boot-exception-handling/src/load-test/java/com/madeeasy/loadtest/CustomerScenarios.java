@@ -0,0 +1,117 @@
+package com.madeeasy.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.util.List;
+
+/**
+ * The scenarios of the load test, at least one per CustomerController endpoint, including the ones which only
+ * produce errors (serialize, example with a bad parameter, malformed JSON, wrong HTTP method).
+ * <p>
+ * Reads rotate over the read customers. Updates and patches rotate over a separate set of write customers, so the
+ * ETags of the read customers stay valid. Every delete removes a customer of its own, created for that purpose.
+ * The order matters: the reads come first, before creates and bulk creates make the table grow.
+ */
+final class CustomerScenarios {
+
+    private static final String JSON = "application/json";
+    private static final double WHOLE_TABLE_SHARE = 0.05;
+
+    private CustomerScenarios() {
+    }
+
+    /**
+     * reads every read customer once, run before the first scenario so even that one reads from a filled customer cache
+     */
+    static Scenario fillCache(String baseUrl, SeedData seed) {
+        long[] readIds = seed.readIds();
+        return new Scenario("fillCache", n -> get(baseUrl, "/customers/with/" + pick(readIds, n)), 200);
+    }
+
+    static List<Scenario> all(String baseUrl, SeedData seed) {
+        long[] readIds = seed.readIds();
+        long[] writeIds = seed.writeIds();
+        long[] deleteIds = seed.deleteIds();
+        return List.of(
+                new Scenario("getById", n -> get(baseUrl, "/customers/with/" + pick(readIds, n)), 200),
+                new Scenario("getByIdNotModified", n -> {
+                    long id = pick(readIds, n);
+                    return HttpRequest.newBuilder(URI.create(baseUrl + "/customers/with/" + id))
+                            .header("If-None-Match", "\"" + id + "-0\"")
+                            .build();
+                }, 304),
+                new Scenario("getByIdRequestParam", n -> get(baseUrl, "/customers/with/request-param?customerId=" + pick(readIds, n)), 200),
+                new Scenario("getByIdNotFound", n -> get(baseUrl, "/customers/with/" + (1_000_000_000L + n)), 404),
+                new Scenario("getByIdTypeMismatch", n -> get(baseUrl, "/customers/with/abc"), 400),
+                new Scenario("getByIdInvalid", n -> get(baseUrl, "/customers/with/0"), 400),
+                new Scenario("getAllCustomers", n -> get(baseUrl, "/customers/get-all-customers"), 200, WHOLE_TABLE_SHARE),
+                new Scenario("page", n -> get(baseUrl, "/customers/page?size=50"), 200),
+                new Scenario("searchByEmail", n -> get(baseUrl, "/customers/search/by-email?email=" + seed.readEmail(n)), 200),
+                new Scenario("searchByName", n -> get(baseUrl, "/customers/search?name=load%20customer%20" + (n % 10)), 200),
+                new Scenario("summary", n -> get(baseUrl, "/customers/summaries/" + pick(readIds, n)), 200),
+                new Scenario("summariesPage", n -> get(baseUrl, "/customers/summaries?size=50"), 200),
+                new Scenario("export", n -> get(baseUrl, "/customers/export"), 200, WHOLE_TABLE_SHARE),
+                new Scenario("cacheStats", n -> get(baseUrl, "/customers/cache/stats"), 200),
+                new Scenario("asyncGetById", n -> get(baseUrl, "/async/customers/with/" + pick(readIds, n)), 200),
+                // SomeObject has no properties, so no converter can write it
+                new Scenario("serialize", n -> get(baseUrl, "/customers/serialize"), 406),
+                new Scenario("example", n -> get(baseUrl, "/customers/example?param=" + n), 200),
+                new Scenario("exampleBadParam", n -> get(baseUrl, "/customers/example?param=abc"), 400),
+                new Scenario("exampleMissingParam", n -> get(baseUrl, "/customers/example"), 400),
+                new Scenario("wrongMethod", n -> HttpRequest.newBuilder(URI.create(baseUrl + "/customers/with/" + pick(readIds, n)))
+                        .DELETE()
+                        .build(), 405),
+                new Scenario("malformedJson", n -> post(baseUrl, "/customers", "{\"name\":\"broken\","), 400),
+                new Scenario("unsupportedMediaType", n -> HttpRequest.newBuilder(URI.create(baseUrl + "/customers"))
+                        .header("Content-Type", "text/plain")
+                        .POST(BodyPublishers.ofString("name"))
+                        .build(), 415),
+                new Scenario("createInvalid", n -> post(baseUrl, "/customers", "{\"name\":\"\",\"email\":\"\"}"), 400),
+                new Scenario("create", n -> post(baseUrl, "/customers",
+                        "{\"name\":\"Created " + n + "\",\"email\":\"created-" + n + "@example.com\"}"), 201),
+                new Scenario("bulkCreate", n -> {
+                    StringBuilder body = new StringBuilder();
+                    for (int i = 0; i < 10; i++) {
+                        body.append("{\"name\":\"Bulk ").append(n).append('-').append(i)
+                                .append("\",\"email\":\"bulk-").append(n).append('-').append(i).append("@example.com\"}\n");
+                    }
+                    return HttpRequest.newBuilder(URI.create(baseUrl + "/customers/bulk"))
+                            .header("Content-Type", "application/x-ndjson")
+                            .POST(BodyPublishers.ofString(body.toString()))
+                            .build();
+                }, 200),
+                new Scenario("update", n -> {
+                    int index = (int) (n % writeIds.length);
+                    return HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + writeIds[index]))
+                            .header("Content-Type", JSON)
+                            .PUT(BodyPublishers.ofString("{\"name\":\"Updated " + n + "\",\"email\":\""
+                                    + seed.writeEmail(index) + "\"}"))
+                            .build();
+                }, 200),
+                new Scenario("patch", n -> HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + pick(writeIds, n)))
+                        .header("Content-Type", JSON)
+                        .method("PATCH", BodyPublishers.ofString("{\"name\":\"Patched " + n + "\"}"))
+                        .build(), 204),
+                new Scenario("delete", n -> HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + deleteIds[(int) n]))
+                        .DELETE()
+                        .build(), 204),
+                new Scenario("bulkDelete", n -> post(baseUrl, "/customers/bulk-delete",
+                        "[" + (2_000_000_000L + n) + "," + (3_000_000_000L + n) + "]"), 200));
+    }
+
+    private static long pick(long[] ids, long n) {
+        return ids[(int) (n % ids.length)];
+    }
+
+    private static HttpRequest get(String baseUrl, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+    }
+
+    private static HttpRequest post(String baseUrl, String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", JSON)
+                .POST(BodyPublishers.ofString(json))
+                .build();
+    }
+}
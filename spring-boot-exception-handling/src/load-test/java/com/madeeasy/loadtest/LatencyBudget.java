@@ -0,0 +1,70 @@
+package com.madeeasy.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The latencies a scenario may not exceed, read from a properties file:
+ * <pre>
+ * # milliseconds, &lt;scenario&gt;.&lt;p50|p99|p999&gt;, default.* for scenarios without an own entry
+ * default.p99=25
+ * getAllCustomers.p99=200
+ * </pre>
+ * A percentile without any entry is not checked.
+ */
+final class LatencyBudget {
+
+    private static final String[] PERCENTILES = {"p50", "p99", "p999"};
+    private static final double[] PERCENTILE_VALUES = {50.0, 99.0, 99.9};
+
+    private final Properties limits;
+
+    private LatencyBudget(Properties limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * a file path, or the latency-budget.properties of the classpath when it is null
+     */
+    static LatencyBudget load(String path) {
+        Properties limits = new Properties();
+        try (InputStream in = path != null
+                ? Files.newInputStream(Path.of(path))
+                : LatencyBudget.class.getResourceAsStream("/latency-budget.properties")) {
+            if (in == null) {
+                throw new IllegalStateException("latency-budget.properties not found on the classpath");
+            }
+            limits.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LatencyBudget(limits);
+    }
+
+    /**
+     * the violations of one scenario, e.g. "getById p99 12.40 ms > 10 ms"
+     */
+    List<String> check(String scenario, Histogram latenciesNanos) {
+        List<String> violations = new ArrayList<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            String limit = limits.getProperty(scenario + "." + PERCENTILES[i],
+                    limits.getProperty("default." + PERCENTILES[i]));
+            if (limit == null) {
+                continue;
+            }
+            double actualMillis = latenciesNanos.getValueAtPercentile(PERCENTILE_VALUES[i]) / 1_000_000.0;
+            if (actualMillis > Double.parseDouble(limit.trim())) {
+                violations.add(String.format("%s %s %.2f ms > %s ms", scenario, PERCENTILES[i], actualMillis, limit.trim()));
+            }
+        }
+        return violations;
+    }
+}
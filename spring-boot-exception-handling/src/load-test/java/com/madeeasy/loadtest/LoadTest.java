@@ -0,0 +1,307 @@
+package com.madeeasy.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madeeasy.SpringBootExceptionHandlingApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Offline load test of the customer API against an instance embedded in the same JVM.
+ * <p>
+ * The application is started on a random port with its default (in-memory H2) configuration and quiet logging, then
+ * filled with customers, see {@link SeedData}, which are all read once to fill the customer cache. Every
+ * {@link CustomerScenarios scenario} gets a warm-up and then a fixed number of requests from
+ * {@code loadtest.concurrency} clients, each sending its next request as soon as the previous answer is in (closed
+ * model). For each scenario the report shows throughput, p50/p99/p999/max latency from an
+ * HdrHistogram, the bytes the server threads allocated per request, and the GC count and time. A full GC between the
+ * warm-up and the measured requests keeps one scenario's garbage out of the next one's latencies.
+ * <p>
+ * Afterwards {@link ConnectionCapacity} compares the blocking and the async summaries page with many more clients than
+ * request threads, for a fixed time each.
+ * <p>
+ * The run fails (exit code 1, and with it the build) when a scenario exceeds its latency budget from
+ * latency-budget.properties, or when a response has an unexpected status.
+ * <p>
+ * System properties: loadtest.requests (per scenario, default 2000), loadtest.warmup (default 500),
+ * loadtest.concurrency (default 8), loadtest.include (regex over scenario names), loadtest.budget (a budget file
+ * instead of the one on the classpath), loadtest.report-dir (default target/load-test, gets one .hgrm file per
+ * scenario, summary.csv and capacity.csv), loadtest.capacity.clients (default 300), loadtest.capacity.seconds (per
+ * endpoint, default 10, 0 leaves the capacity comparison out), loadtest.app-args (more arguments for the embedded
+ * instance separated by spaces, e.g. --spring.profiles.active=virtual-threads or --app.admission.enabled=false).
+ */
+public final class LoadTest {
+
+    private static final int READ_CUSTOMERS = 1000;
+    private static final int WRITE_CUSTOMERS = 100;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = Integer.getInteger("loadtest.requests", 2000);
+        int warmup = Integer.getInteger("loadtest.warmup", 500);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+        Pattern include = Pattern.compile(System.getProperty("loadtest.include", ".*"));
+        LatencyBudget budget = LatencyBudget.load(System.getProperty("loadtest.budget"));
+        Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "target/load-test"));
+        int capacityClients = Integer.getInteger("loadtest.capacity.clients", 300);
+        Duration capacityDuration = Duration.ofSeconds(Integer.getInteger("loadtest.capacity.seconds", 10));
+        Files.createDirectories(reportDir);
+
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.orm.jpa=ERROR",
+                "--logging.level.org.springframework.transaction=WARN",
+                "--logging.level.org.hibernate.SQL=WARN"));
+        for (String arg : System.getProperty("loadtest.app-args", "").trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                appArgs.add(arg);
+            }
+        }
+        ConfigurableApplicationContext context = SpringApplication.run(SpringBootExceptionHandlingApplication.class,
+                appArgs.toArray(String[]::new));
+        int exitCode;
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            SeedData seed = seed(httpClient, baseUrl, warmup + requests);
+            run(httpClient, clients, CustomerScenarios.fillCache(baseUrl, seed), 0, seed.readIds().length, concurrency, null);
+
+            List<String> problems = new ArrayList<>();
+            PrintStream out = System.out;
+            out.printf("%n%d requests per scenario after %d warm-up, %d clients%n%n", requests, warmup, concurrency);
+            out.printf("%-22s %9s %9s %9s %9s %9s %9s %10s %6s %7s%n",
+                    "scenario", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "failed", "KB/req", "gc", "gc ms");
+            StringBuilder csv = new StringBuilder("scenario,requests_per_second,p50_ms,p99_ms,p999_ms,max_ms,failed,"
+                    + "allocated_bytes_per_request,gc_count,gc_ms\n");
+            for (Scenario scenario : CustomerScenarios.all(baseUrl, seed)) {
+                if (!include.matcher(scenario.name()).matches()) {
+                    continue;
+                }
+                long scenarioWarmup = scenario.requests(warmup);
+                long scenarioRequests = scenario.requests(requests);
+                run(httpClient, clients, scenario, 0, scenarioWarmup, concurrency, null);
+                // like JMH between iterations, so the garbage of the seeding or of the previous scenario is not
+                // collected while this one is measured
+                System.gc();
+                Histogram latencies = new Histogram(3);
+                ServerStats before = ServerStats.snapshot();
+                long start = System.nanoTime();
+                Failures failures = run(httpClient, clients, scenario, scenarioWarmup, scenarioRequests, concurrency, latencies);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                ServerStats after = ServerStats.snapshot();
+
+                double allocatedPerRequest = after.allocatedBytesSince(before) / (double) scenarioRequests;
+                out.printf("%-22s %9.0f %9.2f %9.2f %9.2f %9.2f %9d %10.1f %6d %7d%n",
+                        scenario.name(), scenarioRequests / seconds, millis(latencies, 50), millis(latencies, 99),
+                        millis(latencies, 99.9), latencies.getMaxValue() / 1e6, failures.count.get(),
+                        allocatedPerRequest / 1024, after.gcCountSince(before), after.gcMillisSince(before));
+                csv.append(String.format(Locale.ROOT, "%s,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%.0f,%d,%d%n",
+                        scenario.name(), scenarioRequests / seconds, millis(latencies, 50), millis(latencies, 99),
+                        millis(latencies, 99.9), latencies.getMaxValue() / 1e6, failures.count.get(),
+                        allocatedPerRequest, after.gcCountSince(before), after.gcMillisSince(before)));
+                try (PrintStream hgrm = new PrintStream(reportDir.resolve(scenario.name() + ".hgrm").toFile())) {
+                    latencies.outputPercentileDistribution(hgrm, 1_000_000.0);
+                }
+
+                if (failures.count.get() > 0) {
+                    problems.add(scenario.name() + ": " + failures.count.get() + " unexpected responses, first: "
+                            + failures.first.get());
+                }
+                problems.addAll(budget.check(scenario.name(), latencies));
+            }
+            Files.writeString(reportDir.resolve("summary.csv"), csv);
+
+            if (!capacityDuration.isZero()) {
+                HikariPoolMXBean pool = context.getBean(DataSource.class).unwrap(HikariDataSource.class)
+                        .getHikariPoolMXBean();
+                MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+                problems.addAll(runCapacity(httpClient, baseUrl, include, capacityClients, capacityDuration,
+                        () -> pool.getActiveConnections() + pool.getThreadsAwaitingConnection(),
+                        () -> meterRegistry.find("admission.rejected").counters().stream()
+                                .mapToLong(counter -> (long) counter.count())
+                                .sum(),
+                        reportDir, out));
+            }
+
+            out.println();
+            if (problems.isEmpty()) {
+                out.println("All scenarios within their latency budget.");
+                exitCode = 0;
+            } else {
+                out.println("LOAD TEST FAILED");
+                problems.forEach(problem -> out.println("  " + problem));
+                exitCode = 1;
+            }
+        } finally {
+            clients.shutdownNow();
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * runs every {@link ConnectionCapacity} endpoint after a warm-up of a fifth of the time, prints and stores the
+     * results and returns the problems found; the 503s are split into the ones of the admission control ("shed") and
+     * the others (full async queue, async timeout)
+     */
+    private static List<String> runCapacity(HttpClient httpClient, String baseUrl, Pattern include, int clients,
+                                            Duration duration, IntSupplier inDatabase, LongSupplier admissionRejected,
+                                            Path reportDir, PrintStream out) throws Exception {
+        List<String> problems = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("endpoint,requests_per_second,ok,rejected,shed,other,p50_ms,p99_ms,"
+                + "max_ms,probe_p50_ms,probe_p99_ms,probe_max_ms,max_in_database\n");
+        out.printf("%n%d clients for %d s per endpoint, 503 is expected%n%n", clients, duration.toSeconds());
+        out.printf("%-22s %9s %8s %8s %8s %6s %9s %9s %9s %9s %9s %9s %6s%n", "endpoint", "req/s", "2xx", "503",
+                "shed", "other", "p50 ms", "p99 ms", "max ms", "probe p50", "probe p99", "probe max", "in db");
+        for (ConnectionCapacity.Endpoint endpoint : ConnectionCapacity.endpoints()) {
+            if (!include.matcher(endpoint.name()).matches()) {
+                continue;
+            }
+            ConnectionCapacity.run(httpClient, baseUrl, endpoint, clients,
+                    Duration.ofMillis(Math.max(2000, duration.toMillis() / 5)), inDatabase);
+            long shedBefore = admissionRejected.getAsLong();
+            ConnectionCapacity.Result result = ConnectionCapacity.run(httpClient, baseUrl, endpoint, clients, duration,
+                    inDatabase);
+            long shed = admissionRejected.getAsLong() - shedBefore;
+            double seconds = duration.toMillis() / 1000.0;
+            out.printf("%-22s %9.0f %8d %8d %8d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %6d%n", endpoint.name(),
+                    result.requests() / seconds, result.ok(), result.rejected(), shed, result.other(),
+                    millis(result.latencies(), 50), millis(result.latencies(), 99), result.latencies().getMaxValue() / 1e6,
+                    millis(result.probeLatencies(), 50), millis(result.probeLatencies(), 99),
+                    result.probeLatencies().getMaxValue() / 1e6, result.maxInDatabase());
+            csv.append(String.format(Locale.ROOT, "%s,%.1f,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d%n",
+                    endpoint.name(), result.requests() / seconds, result.ok(), result.rejected(), shed, result.other(),
+                    millis(result.latencies(), 50), millis(result.latencies(), 99), result.latencies().getMaxValue() / 1e6,
+                    millis(result.probeLatencies(), 50), millis(result.probeLatencies(), 99),
+                    result.probeLatencies().getMaxValue() / 1e6, result.maxInDatabase()));
+            if (result.other() > 0) {
+                problems.add(endpoint.name() + ": " + result.other() + " unexpected responses, first: "
+                        + result.firstOther());
+            }
+        }
+        Files.writeString(reportDir.resolve("capacity.csv"), csv);
+        return problems;
+    }
+
+    /**
+     * sends requests number from to from + count - 1 of the scenario, latencies are only recorded when a histogram
+     * is given
+     */
+    private static Failures run(HttpClient httpClient, ExecutorService clients, Scenario scenario,
+                                long from, long count, int concurrency, Histogram latencies) throws Exception {
+        AtomicLong next = new AtomicLong(from);
+        long end = from + count;
+        Failures failures = new Failures();
+        List<Future<Histogram>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(clients.submit(() -> {
+                Histogram local = new Histogram(3);
+                for (long n = next.getAndIncrement(); n < end; n = next.getAndIncrement()) {
+                    HttpRequest request = scenario.request().apply(n);
+                    long start = System.nanoTime();
+                    try {
+                        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        local.recordValue(System.nanoTime() - start);
+                        if (status != scenario.expectedStatus()) {
+                            failures.add(request.method() + " " + request.uri() + " -> " + status);
+                        }
+                    } catch (IOException e) {
+                        local.recordValue(System.nanoTime() - start);
+                        failures.add(request.method() + " " + request.uri() + " -> " + e);
+                    }
+                }
+                return local;
+            }));
+        }
+        for (Future<Histogram> worker : workers) {
+            Histogram local = worker.get();
+            if (latencies != null) {
+                latencies.add(local);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Creates the read, write and delete customers with one bulk request. On the fresh in-memory database the items
+     * of the answer come back in the order of the body, with the ids of the new customers.
+     */
+    static SeedData seed(HttpClient httpClient, String baseUrl, int deletes) throws Exception {
+        int total = READ_CUSTOMERS + WRITE_CUSTOMERS + deletes;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < total; i++) {
+            body.append("{\"name\":\"Load Customer ").append(i).append("\",\"email\":\"")
+                    .append(SeedData.email(i)).append("\"}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/customers/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        JsonNode items = new ObjectMapper().readTree(response.body()).path("items");
+        if (response.statusCode() != 200 || items.size() != total) {
+            throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        long[] ids = new long[total];
+        for (int i = 0; i < total; i++) {
+            JsonNode id = items.get(i).path("id");
+            if (!id.canConvertToLong()) {
+                throw new IllegalStateException("Customer " + i + " was not created: " + items.get(i));
+            }
+            ids[i] = id.asLong();
+        }
+        long[] readIds = Arrays.copyOfRange(ids, 0, READ_CUSTOMERS);
+        long[] writeIds = Arrays.copyOfRange(ids, READ_CUSTOMERS, READ_CUSTOMERS + WRITE_CUSTOMERS);
+        long[] deleteIds = Arrays.copyOfRange(ids, READ_CUSTOMERS + WRITE_CUSTOMERS, total);
+        return new SeedData(readIds, writeIds, deleteIds);
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static final class Failures {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicReference<String> first = new AtomicReference<>();
+
+        void add(String description) {
+            count.incrementAndGet();
+            first.compareAndSet(null, description);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.madeeasy.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.function.LongFunction;
+
+/**
+ * One kind of request the load test sends over and over again.
+ *
+ * @param name           used in the report and as key in latency-budget.properties
+ * @param request        builds the n-th request of this scenario (n counts from 0 over warm-up and measurement),
+ *                       so a scenario can rotate through ids or use a fresh email per request
+ * @param expectedStatus any other status counts as a failure of the run
+ * @param share          fraction of loadtest.requests (and of the warm-up) this scenario sends, below 1 for the
+ *                       endpoints which read the whole table
+ */
+record Scenario(String name, LongFunction<HttpRequest> request, int expectedStatus, double share) {
+
+    Scenario(String name, LongFunction<HttpRequest> request, int expectedStatus) {
+        this(name, request, expectedStatus, 1.0);
+    }
+
+    long requests(long requests) {
+        return Math.max(1, Math.round(requests * share));
+    }
+}
@@ -0,0 +1,20 @@
+package com.madeeasy.loadtest;
+
+/**
+ * The customers created before the first scenario. The emails follow the creation order, see
+ * {@link LoadTest#seed}.
+ */
+record SeedData(long[] readIds, long[] writeIds, long[] deleteIds) {
+
+    static String email(int index) {
+        return "load-" + index + "@example.com";
+    }
+
+    String readEmail(long n) {
+        return email((int) (n % readIds.length));
+    }
+
+    String writeEmail(int index) {
+        return email(readIds.length + index);
+    }
+}
@@ -0,0 +1,74 @@
+package com.madeeasy.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allocation and GC counters of the embedded instance at one point in time, the difference of two snapshots is what
+ * a scenario cost.
+ * <p>
+ * Allocations are summed over the request threads of the server only (Tomcat's exec threads, the async customer
+ * pool and Spring Boot's task executor, which writes the NDJSON export), so the load generator running in the same
+ * JVM does not count. GC counts and times are JVM-wide, they
+ * include the garbage of the load generator.
+ */
+final class ServerStats {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Map<Long, Long> allocatedBytesByThread;
+    private final long gcCount;
+    private final long gcMillis;
+
+    private ServerStats(Map<Long, Long> allocatedBytesByThread, long gcCount, long gcMillis) {
+        this.allocatedBytesByThread = allocatedBytesByThread;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    static ServerStats snapshot() {
+        Map<Long, Long> allocated = new HashMap<>();
+        for (ThreadInfo thread : THREADS.getThreadInfo(THREADS.getAllThreadIds())) {
+            if (thread != null && isServerThread(thread.getThreadName())) {
+                long bytes = THREADS.getThreadAllocatedBytes(thread.getThreadId());
+                if (bytes >= 0) {
+                    allocated.put(thread.getThreadId(), bytes);
+                }
+            }
+        }
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        return new ServerStats(allocated, gcCount, gcMillis);
+    }
+
+    private static boolean isServerThread(String name) {
+        return name.contains("-exec-") || name.startsWith("customer-async-") || name.startsWith("task-");
+    }
+
+    /**
+     * bytes allocated by the server threads since the earlier snapshot, threads started in between count from zero
+     */
+    long allocatedBytesSince(ServerStats earlier) {
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytesByThread.entrySet()) {
+            total += thread.getValue() - earlier.allocatedBytesByThread.getOrDefault(thread.getKey(), 0L);
+        }
+        return total;
+    }
+
+    long gcCountSince(ServerStats earlier) {
+        return gcCount - earlier.gcCount;
+    }
+
+    long gcMillisSince(ServerStats earlier) {
+        return gcMillis - earlier.gcMillis;
+    }
+}
@@ -0,0 +1,53 @@
+package com.madeeasy.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.time.Instant;
+
+/**
+ * Jackson setup of the responses.
+ * <p>
+ * Blackbird replaces Jackson's reflective getter and setter calls with generated lambdas, for writing the responses
+ * as well as for reading the bulk and NDJSON bodies. For Customer the gain is small, most of the time goes into
+ * writing the strings, it pays off with larger DTOs. Spring Boot adds every Module bean
+ * to its ObjectMapper, and with it to the JSON converter and to the mappers built here.
+ * <p>
+ * Timestamps are java.time Instants written as ISO-8601 in UTC by {@link IsoInstantSerializer}, which is several
+ * times cheaper than Jackson's formatter based serializer.
+ * <p>
+ * A client which sends {@code Accept: application/x-jackson-smile} gets the same response in Smile, Jackson's binary
+ * JSON. Smile writes each repeated field name only once, so a list of customers is about a third smaller than the
+ * JSON and takes less CPU to write and to parse. Everything else, error responses included, stays JSON.
+ * See CustomerSerializationBenchmark for the numbers.
+ */
+@Configuration(proxyBeanMethods = false)
+public class JacksonConfiguration {
+
+    @Bean
+    Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     * registered after Jackson's JavaTimeModule, so it takes over the Instants
+     */
+    @Bean
+    Module isoInstantModule() {
+        return new SimpleModule("iso-instant").addSerializer(Instant.class, new IsoInstantSerializer());
+    }
+
+    /**
+     * built from Spring Boot's builder, so it has the same modules and spring.jackson settings as the JSON mapper
+     */
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
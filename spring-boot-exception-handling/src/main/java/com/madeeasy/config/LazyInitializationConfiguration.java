@@ -0,0 +1,28 @@
+package com.madeeasy.config;
+
+import com.madeeasy.error.handler.ErrorLogger;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Beans which stay eager when {@code spring.main.lazy-initialization} is on (fast-start profile).
+ * <p>
+ * The database setup is kept at startup: the Flyway migrations and the Hibernate schema validation should fail the
+ * start and not the first request, and a new instance should not hand its first requests the cost of booting
+ * Hibernate. ErrorLogger is kept so its scheduled summary runs from the start.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfiguration {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerDatabaseSetup() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, Flyway.class,
+                FlywayMigrationInitializer.class, EntityManagerFactory.class, ErrorLogger.class);
+    }
+}
@@ -0,0 +1,104 @@
+package com.madeeasy.controller;
+
+import com.madeeasy.dto.CustomerSearchPage;
+import com.madeeasy.dto.CustomerSummary;
+import com.madeeasy.dto.CustomerSummaryPage;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.service.CustomerService;
+import com.madeeasy.service.CustomerSummaryService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * The database-bound endpoints of {@link CustomerController}, answered asynchronously.
+ * <p>
+ * Requests and responses are the same as below /customers. The difference is that the servlet thread only parses and
+ * validates the request and is then given back to Tomcat, the service call runs on {@link AsyncRequestExecutor}. So
+ * slow queries tie up pool threads and connections but not request threads, and one node can keep many more
+ * connections open than it has Tomcat threads. A full queue is a fast 503, a request which is not done within
+ * {@code app.async.timeout} is a 503 as well.
+ * <p>
+ * These endpoints are behind the same admission control as /customers and share its read and write limits, the
+ * bounded queue of the executor only holds requests which were admitted. Page sizes and the search prefix are checked
+ * by the same code as in {@link CustomerController}. If-None-Match is not supported here, the 304 check needs the
+ * servlet request.
+ */
+@RestController
+@RequestMapping("/async/customers")
+@RequiredArgsConstructor
+@Validated
+public class AsyncCustomerController {
+
+    private final AsyncRequestExecutor asyncRequestExecutor;
+    private final CustomerService customerService;
+    private final CustomerSummaryService customerSummaryService;
+
+    @PostMapping
+    public DeferredResult<ResponseEntity<Customer>> createCustomer(@Valid @RequestBody Customer customer) {
+        return asyncRequestExecutor.write(() ->
+                ResponseEntity.status(HttpStatus.CREATED).body(customerService.createCustomer(customer)));
+    }
+
+    @GetMapping("/with/{customerId}")
+    public DeferredResult<ResponseEntity<Customer>> getCustomerById(@PathVariable @Min(1) Long customerId) {
+        return asyncRequestExecutor.read(() -> {
+            Customer customer = customerService.getCustomerByIdWithRequestParameter(customerId);
+            return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
+        });
+    }
+
+    @GetMapping("/search/by-email")
+    public DeferredResult<ResponseEntity<Customer>> getCustomerByEmail(@RequestParam String email) {
+        return asyncRequestExecutor.read(() -> {
+            Customer customer = customerService.getCustomerByEmail(email);
+            return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
+        });
+    }
+
+    @GetMapping("/search")
+    public DeferredResult<ResponseEntity<CustomerSearchPage>> searchCustomers(@RequestParam String name,
+                                                                              @RequestParam(required = false) String cursor,
+                                                                              @RequestParam(defaultValue = "20") int size) {
+        int pageSize = CustomerController.searchPageSize(name, size);
+        return asyncRequestExecutor.read(() ->
+                ResponseEntity.ok(customerService.searchCustomersByName(name, cursor, pageSize)));
+    }
+
+    @GetMapping("/summaries/{customerId}")
+    public DeferredResult<ResponseEntity<CustomerSummary>> getCustomerSummary(@PathVariable @Min(1) Long customerId) {
+        return asyncRequestExecutor.read(() -> ResponseEntity.ok(customerSummaryService.getCustomerSummary(customerId)));
+    }
+
+    @GetMapping("/summaries")
+    public DeferredResult<ResponseEntity<CustomerSummaryPage>> getCustomerSummariesPage(@RequestParam(required = false) String cursor,
+                                                                                        @RequestParam(defaultValue = "50") int size) {
+        int pageSize = CustomerController.pageSize(size);
+        return asyncRequestExecutor.read(() ->
+                ResponseEntity.ok(customerSummaryService.getCustomerSummariesPage(cursor, pageSize)));
+    }
+
+    @DeleteMapping("/{customerId}")
+    public DeferredResult<ResponseEntity<Void>> deleteCustomer(@PathVariable Long customerId,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = CustomerETag.expectedVersion(ifMatch, customerId);
+        return asyncRequestExecutor.write(() -> {
+            customerService.deleteCustomer(customerId, expectedVersion);
+            return ResponseEntity.noContent().build();
+        });
+    }
+}
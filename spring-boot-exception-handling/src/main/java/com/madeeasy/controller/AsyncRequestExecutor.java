@@ -0,0 +1,116 @@
+package com.madeeasy.controller;
+
+import com.madeeasy.error.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs the work of {@link AsyncCustomerController} on a bounded pool, so the Tomcat thread is given back while the
+ * database is busy.
+ * <p>
+ * The pool has {@code app.async.pool-size} threads, keep it near the connection pool size, more threads would only
+ * wait for a connection. Up to {@code app.async.queue-capacity} requests wait for a thread. When the queue is full the
+ * request is rejected at once with a 503 and a Retry-After header, the same answer as from the admission control.
+ * <p>
+ * Every request has {@code app.async.timeout}. After that it is answered with a 503 by
+ * {@link com.madeeasy.error.handler.GlobalExceptionHandler}, a task which is still queued is dropped, and a running
+ * one is bounded by the timeout of its transaction, which Spring applies to the JDBC statements. Tomcat checks async
+ * timeouts only about once a second, so the transaction may run out first. Any failure after the deadline is
+ * answered like the timeout then, not as a 500. Before the deadline an {@link Error} of the work gets a 500 like any
+ * exception, instead of leaving the request to run into the timeout.
+ * <p>
+ * The pool is deliberately not a bean: an Executor bean would replace Spring Boot's applicationTaskExecutor, which
+ * keeps serving the other async requests like the NDJSON export. Its metrics are published as
+ * {@code executor.*} with the tag {@code name=customer.async}.
+ */
+@Component
+public class AsyncRequestExecutor implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final long timeoutMillis;
+    private final ServiceOverloadedException rejection;
+
+    public AsyncRequestExecutor(PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.async.pool-size:10}") int poolSize,
+                                @Value("${app.async.queue-capacity:200}") int queueCapacity,
+                                @Value("${app.async.timeout:2s}") Duration timeout) {
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("customer-async-");
+        // the trace of the request continues on the pool thread
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "customer.async", List.of()).bindTo(meterRegistry);
+
+        this.timeoutMillis = timeout.toMillis();
+        // whole seconds, and one more: Hibernate truncates the remaining time, a last partial second counts as expired
+        int timeoutSeconds = (int) ((timeoutMillis + 999) / 1000) + 1;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        readTransaction.setTimeout(timeoutSeconds);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setTimeout(timeoutSeconds);
+        this.rejection = new ServiceOverloadedException("async", HttpStatus.SERVICE_UNAVAILABLE, 1);
+    }
+
+    public <T> DeferredResult<T> read(Supplier<T> work) {
+        return submit(readTransaction, work);
+    }
+
+    public <T> DeferredResult<T> write(Supplier<T> work) {
+        return submit(writeTransaction, work);
+    }
+
+    private <T> DeferredResult<T> submit(TransactionTemplate transaction, Supplier<T> work) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isSetOrExpired()) {
+                    // the request timed out while this task was queued
+                    return;
+                }
+                try {
+                    result.setResult(transaction.execute(status -> work.get()));
+                } catch (Throwable e) {
+                    result.setErrorResult(System.nanoTime() - deadline >= 0 ? new AsyncRequestTimeoutException() : e);
+                    // an Error is answered with a 500 like an exception, but it stays the pool thread's problem too
+                    if (e instanceof Error error) {
+                        throw error;
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw rejection;
+        }
+        result.onTimeout(() -> task.cancel(false));
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -1,20 +1,48 @@
 package com.madeeasy.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.madeeasy.dto.BulkCreateResult;
+import com.madeeasy.dto.BulkDeleteResult;
+import com.madeeasy.dto.CustomerPage;
+import com.madeeasy.dto.CustomerPatch;
+import com.madeeasy.dto.CustomerSearchPage;
+import com.madeeasy.dto.CustomerSummary;
+import com.madeeasy.dto.CustomerSummaryPage;
 import com.madeeasy.entity.Customer;
 import com.madeeasy.entity.SomeObject;
+import com.madeeasy.service.CustomerBulkIngestService;
+import com.madeeasy.service.CustomerCache;
 import com.madeeasy.service.CustomerService;
+import com.madeeasy.service.CustomerSummaryService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.executable.ValidateOnExecution;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.ConversionNotSupportedException;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MissingPathVariableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/customers")
@@ -22,12 +50,40 @@ import java.util.List;
 @Validated
 public class CustomerController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BULK_DELETE_SIZE = 1000;
+    private static final int MAX_SEARCH_SIZE = 100;
+    private static final int MAX_SEARCH_PREFIX_LENGTH = 255;
+
     private final CustomerService customerService;
+    private final CustomerSummaryService customerSummaryService;
+    private final CustomerBulkIngestService customerBulkIngestService;
+    private final CustomerCache customerCache;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * 201 with the new customer, its ETag and its URL in Location
+     */
     @PostMapping
-    public ResponseEntity<Customer> createCustomer(@RequestBody Customer customer) {
+    public ResponseEntity<Customer> createCustomer(@Valid @RequestBody Customer customer) {
         Customer createdCustomer = customerService.createCustomer(customer);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdCustomer);
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/customers/with/{customerId}")
+                        .buildAndExpand(createdCustomer.getId())
+                        .toUri())
+                .eTag(CustomerETag.of(createdCustomer))
+                .body(createdCustomer);
+    }
+
+    /**
+     * Creates many customers at once. The body is either a JSON array of customers or NDJSON (one customer per line),
+     * it is read as a stream and stored in chunks. The response holds one result per element with either the new id
+     * or the validation errors of that element.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<BulkCreateResult> createCustomers(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(customerBulkIngestService.createCustomers(request.getInputStream()));
     }
 
     /**
@@ -35,39 +91,187 @@ public class CustomerController {
      * one more example to throw {@link MissingPathVariableException} is given below
      *
      * @GetMapping(value = {"getId///", "/getId/{participantId}/{walletType}"})
+     * <p>
+     * The response carries an ETag. A client sending it back in If-None-Match gets a 304 without a body, and only the
+     * version of the customer is looked up for that.
      */
     @GetMapping(value = {"with/", "with/{customerId}"})
     public ResponseEntity<Customer> getCustomerById(@PathVariable @Min(1)
-                                                    Long customerId) throws NoSuchMethodException, MissingPathVariableException {
+                                                    Long customerId,
+                                                    WebRequest webRequest) throws NoSuchMethodException, MissingPathVariableException {
+        if (customerId != null && webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(CustomerETag.of(customerId, customerService.getCustomerVersion(customerId)))) {
+            // 304 and the ETag are already set on the response
+            return null;
+        }
         Customer customer = customerService.getCustomerById(customerId);
-        return ResponseEntity.ok(customer);
+        return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
     }
 
+    /**
+     * a matching If-None-Match is answered with a 304 by Spring before the body is serialized
+     */
     @GetMapping(value = "with/request-param")
     public ResponseEntity<Customer> getCustomerByIdWithRequestParameter(@RequestParam Long customerId) {
         Customer customer = customerService.getCustomerByIdWithRequestParameter(customerId);
-        return ResponseEntity.ok(customer);
+        return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
     }
 
+    /**
+     * loads the whole table into memory before rendering it, use {@link #getCustomersPage(String, int)}
+     * or {@link #exportCustomers()} instead
+     */
+    @Deprecated
     @GetMapping("/get-all-customers")
     public ResponseEntity<List<Customer>> getAllCustomersd() {
         List<Customer> customer = customerService.getAllCustomers();
         return ResponseEntity.ok(customer);
     }
 
+    /**
+     * keyset paginated listing, pass the nextCursor of a page as cursor to get the following page
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CustomerPage> getCustomersPage(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "50") int size) {
+        int pageSize = pageSize(size);
+        return ResponseEntity.ok(customerService.getCustomersPage(cursor, pageSize));
+    }
+
+    /**
+     * exact lookup by email, replaces filtering {@link #getAllCustomersd()} on the client
+     */
+    @GetMapping("/search/by-email")
+    public ResponseEntity<Customer> getCustomerByEmail(@RequestParam String email) {
+        Customer customer = customerService.getCustomerByEmail(email);
+        return ResponseEntity.ok().eTag(CustomerETag.of(customer)).body(customer);
+    }
+
+    /**
+     * Case-insensitive name prefix search, e.g. {@code /customers/search?name=jo}. Results come in keyset pages of at
+     * most {@value #MAX_SEARCH_SIZE}, pass the nextCursor of a page as cursor to get the following one.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CustomerSearchPage> searchCustomers(@RequestParam String name,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        int pageSize = searchPageSize(name, size);
+        return ResponseEntity.ok(customerService.searchCustomersByName(name, cursor, pageSize));
+    }
+
+    /**
+     * id, name and email of one customer, read without loading the entity (see app.read-model.lookup)
+     */
+    @GetMapping("/summaries/{customerId}")
+    public ResponseEntity<CustomerSummary> getCustomerSummary(@PathVariable @Min(1) Long customerId) {
+        return ResponseEntity.ok(customerSummaryService.getCustomerSummary(customerId));
+    }
+
+    /**
+     * keyset paginated listing like {@link #getCustomersPage(String, int)}, but of summaries read without loading
+     * entities (see app.read-model.page)
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<CustomerSummaryPage> getCustomerSummariesPage(@RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "50") int size) {
+        int pageSize = pageSize(size);
+        return ResponseEntity.ok(customerSummaryService.getCustomerSummariesPage(cursor, pageSize));
+    }
+
+    /**
+     * Streams all customers as NDJSON (one JSON object per line). Rows are written to the response while they are
+     * read from the database, nothing is collected in between.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        ObjectWriter customerWriter = objectMapper.writerFor(Customer.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+                customerService.forEachCustomer(customer -> {
+                    try {
+                        customerWriter.writeValue(generator, customer);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * hit/miss/eviction counters of the customer lookup cache
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        CacheStats stats = customerCache.stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", customerCache.size());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * With an If-Match header the update only happens when it holds the current ETag, otherwise the answer is a 412.
+     */
     @PutMapping("/{customerId}")
-    public ResponseEntity<Customer> updateCustomer(@PathVariable @Min(1) Long customerId, @RequestBody Customer customer) {
+    public ResponseEntity<Customer> updateCustomer(@PathVariable @Min(1) Long customerId,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @Valid @RequestBody Customer customer) {
         customer.setId(customerId);
-        Customer updatedCustomer = customerService.updateCustomer(customer);
-        return ResponseEntity.ok(updatedCustomer);
+        Customer updatedCustomer = customerService.updateCustomer(customer, CustomerETag.expectedVersion(ifMatch, customerId));
+        return ResponseEntity.ok().eTag(CustomerETag.of(updatedCustomer)).body(updatedCustomer);
+    }
+
+    /**
+     * Partial update, only the fields present in the body are changed. It is one UPDATE statement and nothing is read
+     * back, so the answer is a 204. The new ETag is only sent when the request had an If-Match header, without it the
+     * new version is not known.
+     */
+    @PatchMapping("/{customerId}")
+    public ResponseEntity<Void> patchCustomer(@PathVariable @Min(1) Long customerId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @Valid @RequestBody CustomerPatch patch) {
+        Long expectedVersion = CustomerETag.expectedVersion(ifMatch, customerId);
+        customerService.patchCustomer(customerId, patch, expectedVersion);
+        if (expectedVersion == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.noContent().eTag(CustomerETag.of(customerId, expectedVersion + 1)).build();
     }
 
+    /**
+     * With an If-Match header the customer is only deleted when it holds the current ETag, otherwise the answer is a 412.
+     * A customer which does not exist is a 404.
+     */
     @DeleteMapping("/{customerId}")
-    public ResponseEntity<Void> deleteCustomer(@PathVariable Long customerId) {
-        customerService.deleteCustomer(customerId);
+    public ResponseEntity<Void> deleteCustomer(@PathVariable Long customerId,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        customerService.deleteCustomer(customerId, CustomerETag.expectedVersion(ifMatch, customerId));
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * deletes the customers with the ids of the body (a JSON array) in one statement, ids which do not exist are skipped
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkDeleteResult> deleteCustomers(@RequestBody List<Long> customerIds) {
+        if (customerIds.size() > MAX_BULK_DELETE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BULK_DELETE_SIZE + " ids can be deleted at once");
+        }
+        LinkedHashSet<Long> distinctIds = new LinkedHashSet<>(customerIds);
+        distinctIds.remove(null);
+        return ResponseEntity.ok(new BulkDeleteResult(customerIds.size(), customerService.deleteCustomers(distinctIds)));
+    }
+
     @GetMapping(value = "/serialize")
     public ResponseEntity<Object> getExample() {
         // Assume there is an error while serializing the response object
@@ -86,4 +290,24 @@ public class CustomerController {
         // Method implementation
         return ResponseEntity.ok("message sent : " + id);
     }
+
+    /**
+     * the requested size of a customer or summary page, within 1 and {@value #MAX_PAGE_SIZE}, also used by
+     * {@link AsyncCustomerController}
+     */
+    static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * checks the name prefix of a search and returns the requested page size within 1 and {@value #MAX_SEARCH_SIZE},
+     * also used by {@link AsyncCustomerController}
+     */
+    static int searchPageSize(String name, int size) {
+        if (name.isBlank() || name.length() > MAX_SEARCH_PREFIX_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "name must have 1 to " + MAX_SEARCH_PREFIX_LENGTH + " characters");
+        }
+        return Math.max(1, Math.min(size, MAX_SEARCH_SIZE));
+    }
 }
@@ -0,0 +1,43 @@
+package com.madeeasy.controller;
+
+import com.madeeasy.entity.Customer;
+import com.madeeasy.error.exception.PreconditionFailedException;
+
+/**
+ * Strong ETags of customers, built from the id and the {@code @Version} column: {@code "<id>-<version>"}.
+ * The version changes with every update, so the ETag does too.
+ */
+final class CustomerETag {
+
+    private CustomerETag() {
+    }
+
+    static String of(Customer customer) {
+        return of(customer.getId(), customer.getVersion());
+    }
+
+    static String of(Long customerId, Long version) {
+        return "\"" + customerId + "-" + version + "\"";
+    }
+
+    /**
+     * @return the version the client expects, null when there is no If-Match header or it is {@code *}
+     * @throws PreconditionFailedException when the header holds a weak ETag, a list of ETags or an ETag of another customer,
+     *                                     none of them can match the current version
+     */
+    static Long expectedVersion(String ifMatch, Long customerId) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        String prefix = "\"" + customerId + "-";
+        if (!etag.startsWith(prefix) || !etag.endsWith("\"") || etag.indexOf(',') >= 0) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match customer " + customerId);
+        }
+        try {
+            return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match customer " + customerId);
+        }
+    }
+}
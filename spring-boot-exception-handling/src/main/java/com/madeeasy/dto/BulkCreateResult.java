@@ -0,0 +1,6 @@
+package com.madeeasy.dto;
+
+import java.util.List;
+
+public record BulkCreateResult(int received, int created, int rejected, List<BulkItemResult> items) {
+}
@@ -0,0 +1,4 @@
+package com.madeeasy.dto;
+
+public record BulkDeleteResult(int requested, int deleted) {
+}
@@ -0,0 +1,21 @@
+package com.madeeasy.dto;
+
+import com.madeeasy.error.ErrorCode;
+
+import java.util.List;
+
+/**
+ * outcome of one element of a bulk request, index is the position of the element in the request body.
+ * id is set when the element was stored, code and errors are empty in that case. Otherwise code says why the element
+ * was rejected, like the code of an error response, and errors has the details for humans.
+ */
+public record BulkItemResult(int index, Long id, ErrorCode code, List<String> errors) {
+
+    public static BulkItemResult created(int index, Long id) {
+        return new BulkItemResult(index, id, null, List.of());
+    }
+
+    public static BulkItemResult rejected(int index, ErrorCode code, List<String> errors) {
+        return new BulkItemResult(index, null, code, errors);
+    }
+}
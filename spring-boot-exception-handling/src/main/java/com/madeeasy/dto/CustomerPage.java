@@ -0,0 +1,38 @@
+package com.madeeasy.dto;
+
+import com.madeeasy.entity.Customer;
+import com.madeeasy.error.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset (seek-by-id) listing.
+ * <p>
+ * nextCursor is an opaque token holding the last id of this page, it is null on the last page.
+ * The next page is requested with {@code ?cursor=<nextCursor>} and is read with {@code where id > :lastId order by id},
+ * so every page costs the same index range scan no matter how deep the client pages.
+ */
+public record CustomerPage(List<Customer> customers, String nextCursor) {
+
+    public static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return the last id of the previous page, 0 when there is no cursor i.e. the first page is requested
+     * @throws InvalidCursorException when the cursor was not created by {@link #encodeCursor(Long)}
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
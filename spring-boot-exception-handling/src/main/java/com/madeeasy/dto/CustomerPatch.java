@@ -0,0 +1,10 @@
+package com.madeeasy.dto;
+
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * partial update of a customer, a null field keeps its current value, a given one must not be blank
+ */
+public record CustomerPatch(@Pattern(regexp = "(?s).*\\S.*", message = "must not be blank") String name,
+                            @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank") String email) {
+}
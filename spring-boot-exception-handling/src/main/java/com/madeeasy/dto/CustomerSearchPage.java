@@ -0,0 +1,65 @@
+package com.madeeasy.dto;
+
+import com.madeeasy.error.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page of a name prefix search, ordered by the lower-cased name and then the id.
+ * <p>
+ * nextCursor is an opaque token holding the sort key of the last customer of this page, it is null on the last page.
+ * The next page is read with {@code where (name_lower, id) > (:lastName, :lastId)}, a seek in the name index just
+ * like {@link CustomerPage} does by id.
+ */
+public record CustomerSearchPage(List<CustomerSummary> customers, String nextCursor) {
+
+    /**
+     * sort key of a search result, the first page starts after {@link #START}
+     */
+    public record Position(String nameLower, long id) {
+
+        public static final Position START = new Position("", 0L);
+        /**
+         * order of the name index, by the lower-cased name and then the id
+         */
+        public static final Comparator<Position> ORDER =
+                Comparator.comparing(Position::nameLower).thenComparingLong(Position::id);
+
+        /**
+         * @return where a search for the prefix continues: this position, or the one right before the first name with
+         * the prefix when this one comes earlier
+         */
+        public Position atLeast(String nameLowerPrefix) {
+            Position beforePrefix = new Position(nameLowerPrefix, 0L);
+            return ORDER.compare(this, beforePrefix) > 0 ? this : beforePrefix;
+        }
+    }
+
+    public static String encodeCursor(String nameLower, Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((lastId + ":" + nameLower).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the position after which the requested page starts, {@link Position#START} when there is no cursor
+     * @throws InvalidCursorException when the cursor was not created by {@link #encodeCursor(String, Long)}
+     */
+    public static Position decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Position.START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new Position(decoded.substring(separator + 1), Long.parseLong(decoded.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
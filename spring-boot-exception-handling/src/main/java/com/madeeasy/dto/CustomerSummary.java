@@ -0,0 +1,10 @@
+package com.madeeasy.dto;
+
+/**
+ * Read model of a customer with only the fields listings and lookups show.
+ * <p>
+ * It is created straight from the result set, by a JPQL constructor expression or a JDBC row mapper, so reading it
+ * creates no entity, no persistence context entry and no dirty-checking snapshot.
+ */
+public record CustomerSummary(Long id, String name, String email) {
+}
@@ -0,0 +1,9 @@
+package com.madeeasy.dto;
+
+import java.util.List;
+
+/**
+ * one page of a keyset listing of {@link CustomerSummary}, the cursor works like the one of {@link CustomerPage}
+ */
+public record CustomerSummaryPage(List<CustomerSummary> customers, String nextCursor) {
+}
@@ -1,13 +1,16 @@
 package com.madeeasy.entity;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.util.Date;
+import java.time.Instant;
+import java.util.Locale;
 
 @Getter
 @Setter
@@ -15,25 +18,67 @@ import java.util.Date;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Table(name = "customer")
+@Table(name = "customer", indexes = {
+        // the schema itself is created by the Flyway migrations in db/migration, these only document it
+        @Index(name = "uk_customer_email", columnList = "email", unique = true),
+        @Index(name = "idx_customer_created_at", columnList = "created_at"),
+        @Index(name = "idx_customer_name_lower_id", columnList = "name_lower, id")
+})
 public class Customer {
 
+    /**
+     * pooled sequence: one sequence call hands out a block of 50 ids, so inserts need no extra round-trip per row
+     * and Hibernate can group them into JDBC batches (an identity column would rule out insert batching)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
     private String name;
+
+    /**
+     * name lower-cased for the case-insensitive prefix search, see {@link #normalizeName(String)}.
+     * Derived from name on every insert and update, it is never read from or written to JSON.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_lower")
+    private String nameLower;
+    @NotBlank
     @Column(nullable = false)
     private String email;
 
+    /**
+     * points in time, written to JSON as ISO-8601 in UTC, e.g. "2024-05-01T12:30:15.123456Z"
+     */
     @CreationTimestamp
-    @Temporal(TemporalType.TIMESTAMP)
     @Column(updatable = false)
-    private Date createdAt;
+    private Instant createdAt;
 
     @UpdateTimestamp
-    @Temporal(TemporalType.TIMESTAMP)
-    private Date updatedAt;
+    private Instant updatedAt;
+
+    /**
+     * optimistic lock, increased by every update. It is part of the ETag, clients send it back in If-Match
+     * instead of the body, so it is never read from JSON.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    /**
+     * the one normalization of names used by the name_lower column, the search queries and the in-memory name index
+     */
+    public static String normalizeName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateNameLower() {
+        nameLower = normalizeName(name);
+    }
 
 }
@@ -0,0 +1,56 @@
+package com.madeeasy.error;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Stable, machine-readable codes of all error responses.
+ * <p>
+ * Every error body carries one of these as {@code "code"}, together with a {@code "type"} URI derived from it, e.g.
+ * {@code urn:problem-type:customer-not-found} for {@link #CUSTOMER_NOT_FOUND}. Clients are supposed to branch on the
+ * code, the title and the detail are for humans and may change. A code is never renamed or reused for something
+ * else once it was released, new failures get new codes.
+ */
+public enum ErrorCode {
+
+    METHOD_NOT_ALLOWED("HTTP method not supported"),
+    UNSUPPORTED_MEDIA_TYPE("Unsupported media type"),
+    NOT_ACCEPTABLE("Requested media type is not acceptable"),
+    MISSING_PATH_VARIABLE("Path variable is missing"),
+    MISSING_PARAMETER("Request parameter is missing"),
+    MISSING_PART("Request part is missing"),
+    BINDING_FAILED("Request parameters or headers cannot be bound"),
+    VALIDATION_FAILED("Validation failed"),
+    NO_HANDLER("No handler found for the requested URL"),
+    REQUEST_TIMEOUT("Request processing timed out"),
+    CONVERSION_NOT_SUPPORTED("Conversion not supported"),
+    TYPE_MISMATCH("Invalid request parameter"),
+    MALFORMED_BODY("Invalid JSON data in request body"),
+    RESPONSE_NOT_WRITABLE("Response body cannot be written"),
+    INVALID_REQUEST("Invalid request"),
+    NOT_FOUND("Not found"),
+    CUSTOMER_NOT_FOUND("Customer not found"),
+    INVALID_CURSOR("Invalid cursor"),
+    PRECONDITION_FAILED("Precondition failed"),
+    DATA_CONFLICT("Conflicts with existing data"),
+    IDEMPOTENCY_KEY_REUSED("Idempotency key reused for another request"),
+    IDEMPOTENCY_KEY_IN_PROGRESS("Request with this idempotency key is in progress"),
+    SERVICE_OVERLOADED("Service overloaded, retry later"),
+    INTERNAL_ERROR("Internal server error");
+
+    private final String title;
+    private final URI type;
+
+    ErrorCode(String title) {
+        this.title = title;
+        this.type = URI.create("urn:problem-type:" + name().toLowerCase(Locale.ROOT).replace('_', '-'));
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public URI getType() {
+        return type;
+    }
+}
@@ -0,0 +1,28 @@
+package com.madeeasy.error.exception;
+
+import com.madeeasy.error.ErrorCode;
+import lombok.Getter;
+
+/**
+ * thrown when there is no customer with the requested email address
+ */
+@Getter
+public class CustomerEmailNotFoundException extends NotFoundException {
+
+    private final String email;
+
+    public CustomerEmailNotFoundException(String email, boolean captureStackTrace) {
+        super(captureStackTrace);
+        this.email = email;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Customer not found: " + email;
+    }
+
+    @Override
+    public ErrorCode getErrorCode() {
+        return ErrorCode.CUSTOMER_NOT_FOUND;
+    }
+}
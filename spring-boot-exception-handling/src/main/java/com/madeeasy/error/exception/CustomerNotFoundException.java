@@ -0,0 +1,28 @@
+package com.madeeasy.error.exception;
+
+import com.madeeasy.error.ErrorCode;
+import lombok.Getter;
+
+/**
+ * thrown when there is no customer with the requested id
+ */
+@Getter
+public class CustomerNotFoundException extends NotFoundException {
+
+    private final Long customerId;
+
+    public CustomerNotFoundException(Long customerId, boolean captureStackTrace) {
+        super(captureStackTrace);
+        this.customerId = customerId;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Customer not found: " + customerId;
+    }
+
+    @Override
+    public ErrorCode getErrorCode() {
+        return ErrorCode.CUSTOMER_NOT_FOUND;
+    }
+}
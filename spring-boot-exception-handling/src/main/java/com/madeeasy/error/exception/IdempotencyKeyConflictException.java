@@ -0,0 +1,18 @@
+package com.madeeasy.error.exception;
+
+import lombok.Getter;
+
+/**
+ * thrown when an Idempotency-Key is sent again with another request (other path or body) than the one it was first
+ * used for, it is answered with a 422 and the request is not executed
+ */
+@Getter
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public IdempotencyKeyConflictException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used for another request", null, false, false);
+        this.idempotencyKey = idempotencyKey;
+    }
+}
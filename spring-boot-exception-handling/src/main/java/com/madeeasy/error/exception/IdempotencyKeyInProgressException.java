@@ -0,0 +1,18 @@
+package com.madeeasy.error.exception;
+
+import lombok.Getter;
+
+/**
+ * thrown when a retry waited too long for the first request with the same Idempotency-Key to finish,
+ * it is answered with a 409 and the client can retry later
+ */
+@Getter
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public IdempotencyKeyInProgressException(String idempotencyKey) {
+        super("Request with Idempotency-Key " + idempotencyKey + " is still in progress", null, false, false);
+        this.idempotencyKey = idempotencyKey;
+    }
+}
@@ -0,0 +1,17 @@
+package com.madeeasy.error.exception;
+
+import lombok.Getter;
+
+/**
+ * thrown when a paging cursor sent by the client cannot be decoded, it is answered with a 400
+ */
+@Getter
+public class InvalidCursorException extends RuntimeException {
+
+    private final String cursor;
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor: " + cursor, null, false, false);
+        this.cursor = cursor;
+    }
+}
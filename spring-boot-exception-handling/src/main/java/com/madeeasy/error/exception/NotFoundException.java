@@ -0,0 +1,31 @@
+package com.madeeasy.error.exception;
+
+import com.madeeasy.error.ErrorCode;
+
+/**
+ * Base class for "the requested thing does not exist" outcomes of the service layer.
+ * <p>
+ * A lookup miss is an expected result and not a bug, so by default these exceptions do not capture a stack trace
+ * (writableStackTrace = false) and do not record suppressed exceptions. Creating and throwing one then costs about as
+ * much as any other small object. For debugging the capture can be switched on again with
+ * {@code app.errors.capture-stack-traces=true}.
+ * <p>
+ * The message is only built when somebody asks for it, see {@link #getMessage()}.
+ * {@link com.madeeasy.error.handler.GlobalExceptionHandler} maps every subclass to a 404 with its {@link #getErrorCode()}.
+ */
+public abstract class NotFoundException extends RuntimeException {
+
+    protected NotFoundException(boolean captureStackTrace) {
+        super(null, null, false, captureStackTrace);
+    }
+
+    @Override
+    public abstract String getMessage();
+
+    /**
+     * the code of the 404 body, subclasses name what was not found
+     */
+    public ErrorCode getErrorCode() {
+        return ErrorCode.NOT_FOUND;
+    }
+}
@@ -0,0 +1,12 @@
+package com.madeeasy.error.exception;
+
+/**
+ * thrown when the If-Match header of a request does not match the current version of the resource,
+ * i.e. the client works on stale data. It is answered with a 412, like a lost optimistic lock.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,25 @@
+package com.madeeasy.error.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * thrown by the admission control when all permits of an endpoint group are taken, and by the async endpoints when
+ * their queue is full, it is answered right away with the configured status (503 or 429) and a Retry-After header
+ * <p>
+ * One instance exists per group and is thrown again for every rejection, so a rejection allocates nothing.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final String group;
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String group, HttpStatus status, long retryAfterSeconds) {
+        super("Too many concurrent " + group + " requests", null, false, false);
+        this.group = group;
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
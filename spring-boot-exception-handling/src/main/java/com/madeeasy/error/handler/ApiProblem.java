@@ -0,0 +1,53 @@
+package com.madeeasy.error.handler;
+
+import com.madeeasy.error.ErrorCode;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ProblemDetail;
+
+import java.util.List;
+
+/**
+ * The RFC 7807 body of every error response, a {@link ProblemDetail} with the stable {@link ErrorCode} and, for
+ * validation failures, the list of {@link FieldViolation}s:
+ * <pre>
+ * {
+ *   "type": "urn:problem-type:validation-failed",
+ *   "title": "Validation failed",
+ *   "status": 400,
+ *   "code": "VALIDATION_FAILED",
+ *   "detail": "1 field is invalid",
+ *   "instance": "/customers",
+ *   "errors": [{"field": "email", "code": "NotBlank", "message": "must not be blank"}]
+ * }
+ * </pre>
+ * The code and the violations are plain fields instead of entries of {@link #getProperties()}, so
+ * {@link ProblemJsonHttpMessageConverter} writes them without going through a map. Being a ProblemDetail, Spring MVC
+ * fills in the instance (the request path) and renders it as application/problem+json even when the client's Accept
+ * header asks for something else.
+ */
+public class ApiProblem extends ProblemDetail {
+
+    private final ErrorCode code;
+    private final List<FieldViolation> errors;
+
+    public ApiProblem(ErrorCode code, HttpStatusCode status, String detail, List<FieldViolation> errors) {
+        super(status.value());
+        this.code = code;
+        this.errors = errors;
+        setType(code.getType());
+        setTitle(code.getTitle());
+        setDetail(detail);
+    }
+
+    public ApiProblem(ErrorCode code, HttpStatusCode status, String detail) {
+        this(code, status, detail, List.of());
+    }
+
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    public List<FieldViolation> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,91 @@
+package com.madeeasy.error.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs unexpected exceptions without letting an error storm flood the log.
+ * <p>
+ * Exceptions are grouped by a fingerprint, the exception class plus the code location it was thrown from. The first
+ * {@code app.errors.log.full-occurrences} exceptions of a fingerprint are logged with their stack trace. After that
+ * they are only counted, and every {@code app.errors.log.summary-interval-ms} one line per fingerprint is written,
+ * for example {@code "IllegalStateException at CustomerService.java:42 x1234 in last 10s (5000 total)"}.
+ * A fingerprint which stays quiet for a whole interval is forgotten, so the next occurrence is logged in full again.
+ * <p>
+ * The log itself goes through an asynchronous appender which drops events instead of blocking, see logback-spring.xml.
+ */
+@Slf4j
+@Component
+public class ErrorLogger {
+
+    private static final int MAX_FINGERPRINTS = 1000;
+    private static final Fingerprint OTHER = new Fingerprint(Exception.class, null);
+
+    private final int fullOccurrences;
+    private final long summaryIntervalMillis;
+    private final Map<Fingerprint, Occurrences> occurrences = new ConcurrentHashMap<>();
+
+    public ErrorLogger(@Value("${app.errors.log.full-occurrences:5}") int fullOccurrences,
+                       @Value("${app.errors.log.summary-interval-ms:10000}") long summaryIntervalMillis) {
+        this.fullOccurrences = fullOccurrences;
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    public void log(Exception ex, String description) {
+        Fingerprint fingerprint = Fingerprint.of(ex);
+        Occurrences counter = occurrences.get(fingerprint);
+        if (counter == null) {
+            if (occurrences.size() >= MAX_FINGERPRINTS) {
+                fingerprint = OTHER;
+            }
+            counter = occurrences.computeIfAbsent(fingerprint, f -> new Occurrences());
+        }
+        counter.sinceLastSummary.increment();
+        long total = counter.total.incrementAndGet();
+        if (total <= fullOccurrences) {
+            log.error("Unhandled exception for {} ({} of {} logged in full)", description, total, fullOccurrences, ex);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.errors.log.summary-interval-ms:10000}",
+            initialDelayString = "${app.errors.log.summary-interval-ms:10000}")
+    public void logSummary() {
+        occurrences.forEach((fingerprint, counter) -> {
+            long count = counter.sinceLastSummary.sumThenReset();
+            if (count == 0) {
+                occurrences.remove(fingerprint, counter);
+            } else if (counter.total.get() > fullOccurrences) {
+                log.error("{} x{} in last {}s ({} total)",
+                        fingerprint, count, summaryIntervalMillis / 1000, counter.total.get());
+            }
+        });
+    }
+
+    private record Fingerprint(Class<?> type, StackTraceElement origin) {
+
+        static Fingerprint of(Exception ex) {
+            StackTraceElement[] stackTrace = ex.getStackTrace();
+            return new Fingerprint(ex.getClass(), stackTrace.length > 0 ? stackTrace[0] : null);
+        }
+
+        @Override
+        public String toString() {
+            if (origin == null) {
+                return type.getSimpleName();
+            }
+            return type.getSimpleName() + " at " + origin.getFileName() + ":" + origin.getLineNumber();
+        }
+    }
+
+    private static final class Occurrences {
+        private final AtomicLong total = new AtomicLong();
+        private final LongAdder sinceLastSummary = new LongAdder();
+    }
+}
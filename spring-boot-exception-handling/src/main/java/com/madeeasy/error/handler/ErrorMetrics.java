@@ -0,0 +1,87 @@
+package com.madeeasy.error.handler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts and times every response produced by {@link GlobalExceptionHandler}.
+ * <p>
+ * All error responses are recorded in one timer, {@value #METRIC}, tagged with
+ * <ul>
+ *     <li>exception - simple class name of the handled exception</li>
+ *     <li>status - HTTP status of the error response</li>
+ *     <li>handler - controller method the request was mapped to, "none" when no handler was found (404, 405, ...)</li>
+ * </ul>
+ * The timer count is the number of failures, and its percentile histogram shows what handling them costs.
+ * Timers are looked up through nested maps keyed by the exception class, the handler {@link Method} and the status
+ * code, so recording a known combination allocates nothing. Only the first occurrence registers a new timer.
+ */
+@Component
+@RequiredArgsConstructor
+public class ErrorMetrics {
+
+    public static final String METRIC = "http.server.errors";
+
+    private static final Object NO_HANDLER = new Object();
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Map<Object, AtomicReferenceArray<Timer>>> timers = new ConcurrentHashMap<>();
+
+    public void record(Exception ex, HttpStatusCode status, WebRequest request, long startNanos) {
+        timer(ex.getClass(), handlerMethod(request), status.value())
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Object handlerMethod(WebRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return handler instanceof HandlerMethod handlerMethod ? handlerMethod.getMethod() : NO_HANDLER;
+    }
+
+    private Timer timer(Class<?> exceptionType, Object handler, int status) {
+        Map<Object, AtomicReferenceArray<Timer>> byHandler = timers.get(exceptionType);
+        if (byHandler == null) {
+            byHandler = timers.computeIfAbsent(exceptionType, type -> new ConcurrentHashMap<>());
+        }
+        AtomicReferenceArray<Timer> byStatus = byHandler.get(handler);
+        if (byStatus == null) {
+            byStatus = byHandler.computeIfAbsent(handler, h -> new AtomicReferenceArray<>(MAX_STATUS - MIN_STATUS + 1));
+        }
+        if (status < MIN_STATUS || status > MAX_STATUS) {
+            return register(exceptionType, handler, status);
+        }
+        Timer timer = byStatus.get(status - MIN_STATUS);
+        if (timer == null) {
+            // the registry hands out the same timer for the same tags, so a concurrent registration is harmless
+            timer = register(exceptionType, handler, status);
+            byStatus.set(status - MIN_STATUS, timer);
+        }
+        return timer;
+    }
+
+    private Timer register(Class<?> exceptionType, Object handler, int status) {
+        return Timer.builder(METRIC)
+                .description("Error responses produced by GlobalExceptionHandler")
+                .tag("exception", exceptionType.getSimpleName())
+                .tag("status", String.valueOf(status))
+                .tag("handler", handler instanceof Method method
+                        ? method.getDeclaringClass().getSimpleName() + "#" + method.getName()
+                        : "none")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
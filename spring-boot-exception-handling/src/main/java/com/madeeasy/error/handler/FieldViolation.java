@@ -0,0 +1,11 @@
+package com.madeeasy.error.handler;
+
+/**
+ * One entry of the {@code "errors"} list of a {@link com.madeeasy.error.ErrorCode#VALIDATION_FAILED} response.
+ *
+ * @param field   the offending field or parameter, e.g. {@code "email"} or {@code "customerId"}
+ * @param code    the constraint which failed, e.g. {@code "NotBlank"} or {@code "Min"}
+ * @param message human readable explanation, e.g. {@code "must not be blank"}
+ */
+public record FieldViolation(String field, String code, String message) {
+}
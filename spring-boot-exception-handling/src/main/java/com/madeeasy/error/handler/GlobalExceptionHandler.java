@@ -1,14 +1,29 @@
 package com.madeeasy.error.handler;
 
-import jakarta.servlet.http.HttpServletRequest;
+import com.madeeasy.error.ErrorCode;
+import com.madeeasy.error.exception.IdempotencyKeyConflictException;
+import com.madeeasy.error.exception.IdempotencyKeyInProgressException;
+import com.madeeasy.error.exception.InvalidCursorException;
+import com.madeeasy.error.exception.NotFoundException;
+import com.madeeasy.error.exception.PreconditionFailedException;
+import com.madeeasy.error.exception.ServiceOverloadedException;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import jakarta.validation.ConstraintViolation;
-import org.hibernate.exception.ConstraintViolationException;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Path;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.ConversionNotSupportedException;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.*;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
-import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.ErrorResponseException;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -19,28 +34,59 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.multipart.support.MissingServletRequestPartException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Every error response is an RFC 7807 {@link ApiProblem} with a stable {@link ErrorCode}, rendered as
+ * application/problem+json by {@link ProblemJsonHttpMessageConverter}. Validation failures list the offending fields
+ * as {@link FieldViolation}s, whether they come from a {@code @Valid} body, from constraints on controller method
+ * parameters or from Spring's own method validation.
+ * <p>
+ * Every handler is counted and timed by {@link ErrorMetrics}. The handlers which delegate to the super class are
+ * recorded once in {@link #handleExceptionInternal}. The error code is also put on the span of the request as
+ * {@value #ERROR_CODE_TAG}, see {@link com.madeeasy.tracing.TracesEndpoint}.
+ */
 @ControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+    /**
+     * tag with the {@link ErrorCode} on the span of a failed request
+     */
+    public static final String ERROR_CODE_TAG = "error.code";
+
+    private final ErrorMetrics errorMetrics;
+    private final ProblemJsonHttpMessageConverter problemWriter;
+    private final ErrorLogger errorLogger;
+    private final Tracer tracer;
+    /**
+     * complete responses of the admission control, one per group, keyed by the per-group exception instance
+     */
+    private final Map<ServiceOverloadedException, ResponseEntity<Object>> overloadResponses = new ConcurrentHashMap<>();
+    /**
+     * the complete answer to an async request which ran out of time, built on first use
+     */
+    private volatile ResponseEntity<Object> asyncTimeoutResponse;
 
     @Override
     protected ResponseEntity<Object> handleHttpRequestMethodNotSupported(HttpRequestMethodNotSupportedException ex,
                                                                          HttpHeaders headers,
                                                                          HttpStatusCode status,
                                                                          WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("HTTP method not supported", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.METHOD_NOT_ALLOWED, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -54,8 +100,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                      HttpHeaders headers,
                                                                      HttpStatusCode status,
                                                                      WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("Unsupported media type", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.UNSUPPORTED_MEDIA_TYPE, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -94,9 +140,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                       HttpHeaders headers,
                                                                       HttpStatusCode status,
                                                                       WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("Requested media type is not acceptable.", status.value(),
-                "detail", "Acceptable representations: [application/json, application/*+json].");
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.NOT_ACCEPTABLE, status, headers, ex.getBody().getDetail());
     }
 
 
@@ -105,8 +150,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                HttpHeaders headers,
                                                                HttpStatusCode status,
                                                                WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("Path variable is missing", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.MISSING_PATH_VARIABLE, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -119,12 +164,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                           HttpHeaders headers,
                                                                           HttpStatusCode status,
                                                                           WebRequest request) {
-        String parameterName = ex.getParameterName();
-        String errorMessage = "Request parameter '" + parameterName + "' is missing.";
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("error", errorMessage);
-
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.MISSING_PARAMETER, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -139,8 +180,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                      HttpHeaders headers,
                                                                      HttpStatusCode status,
                                                                      WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("Required parameter '" + ex.getRequestPartName() + "'is missing", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.MISSING_PART, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -157,8 +198,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                           HttpHeaders headers,
                                                                           HttpStatusCode status,
                                                                           WebRequest request) {
-        String errorMessage = "Error binding request parameters or headers.";
-        return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.BINDING_FAILED, status, headers, ex.getBody().getDetail());
     }
 
     /**
@@ -168,17 +209,62 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
      * <p>
      * The name field of the above  is annotated with @NotBlank, indicating that it should not be empty.
      * If a request is made with an empty name field in the request body, a MethodArgumentNotValidException will be thrown.
+     * Every failed field becomes one entry of "errors", constraints on the whole object are listed under its name.
      */
-    // not understood
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
                                                                   HttpHeaders headers,
                                                                   HttpStatusCode status,
                                                                   WebRequest request
     ) {
-        String errorMessage = "Validation failed for method argument.";
-        return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+        long start = System.nanoTime();
+        List<FieldViolation> violations = new ArrayList<>(ex.getErrorCount());
+        for (ObjectError error : ex.getAllErrors()) {
+            String field = error instanceof FieldError fieldError ? fieldError.getField() : error.getObjectName();
+            violations.add(new FieldViolation(field, error.getCode(), error.getDefaultMessage()));
+        }
+        return validationFailed(ex, request, start, status, headers, violations);
+    }
 
+    /**
+     * Spring's built-in method validation, for constrained controller parameters which are not covered by the
+     * {@code @Validated} proxy, e.g. {@code @RequestParam @Min(1) int size}.
+     */
+    @Override
+    protected ResponseEntity<Object> handleHandlerMethodValidationException(HandlerMethodValidationException ex,
+                                                                            HttpHeaders headers,
+                                                                            HttpStatusCode status,
+                                                                            WebRequest request) {
+        long start = System.nanoTime();
+        List<FieldViolation> violations = new ArrayList<>();
+        ex.getAllValidationResults().forEach(result -> {
+            String parameter = result.getMethodParameter().getParameterName();
+            result.getResolvableErrors().forEach(error -> {
+                String[] codes = error.getCodes();
+                String code = codes != null && codes.length > 0 ? codes[codes.length - 1] : null;
+                violations.add(new FieldViolation(parameter, code, error.getDefaultMessage()));
+            });
+        });
+        return validationFailed(ex, request, start, status, headers, violations);
+    }
+
+    /**
+     * Constraints on the parameters of a {@code @Validated} bean, e.g. {@code @PathVariable @Min(1) Long customerId}
+     * of the CustomerController. The field is the last node of the property path, i.e. the parameter name.
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    protected ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex, WebRequest request) {
+        long start = System.nanoTime();
+        List<FieldViolation> violations = new ArrayList<>(ex.getConstraintViolations().size());
+        for (ConstraintViolation<?> violation : ex.getConstraintViolations()) {
+            String field = null;
+            for (Path.Node node : violation.getPropertyPath()) {
+                field = node.getName();
+            }
+            String code = violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName();
+            violations.add(new FieldViolation(field, code, violation.getMessage()));
+        }
+        return validationFailed(ex, request, start, HttpStatus.BAD_REQUEST, null, violations);
     }
 
 
@@ -189,23 +275,50 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
      * In this example, the exampleMethod handles requests made to '/example'. However, if a request is made to a
      * non-existing URL, such as '/non-existing', a NoHandlerFoundException will be thrown as there is no matching handler for that URL.
      */
-
-    // not understood
     @Override
     protected ResponseEntity<Object> handleNoHandlerFoundException(NoHandlerFoundException ex,
                                                                    HttpHeaders headers,
                                                                    HttpStatusCode status,
                                                                    WebRequest request) {
-        String errorMessage = "No handler found for the requested URL i.e. not uri found";
-        return new ResponseEntity<>(errorMessage, HttpStatus.NOT_FOUND);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.NO_HANDLER, status, headers, ex.getBody().getDetail());
     }
 
+    /**
+     * Since Spring 6.1 an unknown URL usually ends up at the static resource handler, which throws this instead of
+     * a {@link NoHandlerFoundException}. For the client both are the same.
+     */
+    @Override
+    protected ResponseEntity<Object> handleNoResourceFoundException(NoResourceFoundException ex,
+                                                                    HttpHeaders headers,
+                                                                    HttpStatusCode status,
+                                                                    WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.NO_HANDLER, status, headers, ex.getBody().getDetail());
+    }
+
+    /**
+     * An async request (see {@link com.madeeasy.controller.AsyncCustomerController}) was not done within its timeout.
+     * Timeouts come in bursts when the database is slow, so the 503 with its Retry-After header and the rendered
+     * body is built once and then handed out as it is, nothing is allocated or logged per timeout.
+     */
     @Override
     protected ResponseEntity<Object> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex,
                                                                         HttpHeaders headers,
                                                                         HttpStatusCode status,
                                                                         WebRequest request) {
-        return super.handleAsyncRequestTimeoutException(ex, headers, status, request);
+        long start = System.nanoTime();
+        ResponseEntity<Object> response = asyncTimeoutResponse;
+        if (response == null) {
+            HttpHeaders responseHeaders = new HttpHeaders();
+            responseHeaders.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+            responseHeaders.set(HttpHeaders.RETRY_AFTER, "1");
+            byte[] body = problemWriter.toBytes(new ApiProblem(ErrorCode.REQUEST_TIMEOUT, HttpStatus.SERVICE_UNAVAILABLE, null));
+            response = new ResponseEntity<>(body, HttpHeaders.readOnlyHttpHeaders(responseHeaders), HttpStatus.SERVICE_UNAVAILABLE);
+            // two threads may build it at the same time, both results are equal so the race is harmless
+            asyncTimeoutResponse = response;
+        }
+        return measured(ex, request, start, ErrorCode.REQUEST_TIMEOUT, response);
     }
 
     /**
@@ -217,8 +330,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                   HttpHeaders headers,
                                                                   HttpStatusCode status,
                                                                   WebRequest request) {
-        String errorMessage = ex.getMessage();
-        return new ResponseEntity<>(errorMessage, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, genericCode(status), status, headers, ex.getBody().getDetail());
     }
 
 
@@ -227,9 +340,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                   HttpHeaders headers,
                                                                   HttpStatusCode status,
                                                                   WebRequest request) {
-        String errorMessage = "Conversion not supported.";
-        return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
-
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.CONVERSION_NOT_SUPPORTED, status, headers, null);
     }
 
     /**
@@ -246,8 +358,12 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                         HttpHeaders headers,
                                                         HttpStatusCode status,
                                                         WebRequest request) {
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid request parameter i.e. required @PathVariable(\"id\") Long id ");
-
+        long start = System.nanoTime();
+        String expected = ex.getRequiredType() != null ? ex.getRequiredType().getSimpleName() : "value";
+        String detail = ex.getPropertyName() != null
+                ? "'" + ex.getValue() + "' is not a valid " + expected + " for " + ex.getPropertyName()
+                : "'" + ex.getValue() + "' is not a valid " + expected;
+        return problem(ex, request, start, ErrorCode.TYPE_MISMATCH, status, headers, detail);
     }
 
     /**
@@ -258,8 +374,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex,
                                                                   HttpHeaders headers,
                                                                   HttpStatusCode status, WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("Invalid JSON data in request body", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.MALFORMED_BODY, status, headers, null);
     }
 
     /**
@@ -274,32 +390,115 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                   HttpHeaders headers,
                                                                   HttpStatusCode status,
                                                                   WebRequest request) {
-        Map<String, Object> errorResponse = Map.of("there is an issue serializing the response object to JSON or" +
-                " the response body cannot be written.", status.value());
-        return new ResponseEntity<>(errorResponse, headers, status);
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.RESPONSE_NOT_WRITABLE, status, headers, null);
     }
 
     /**
-     * This method is called internally when generating error responses.
-     * The createProblemDetail method will be triggered when an exception occurs during request processing and Spring's
-     * error handling mechanism is activated. The specific scenarios and exceptions that trigger this method depend on your
-     * application's error handling configuration and the types of exceptions thrown during request processing.
+     * {@link NotFoundException}s are thrown by the service layer when a lookup misses, for example
+     * {@link com.madeeasy.error.exception.CustomerNotFoundException} for an unknown customer id.
+     * A miss is an expected outcome, so it is answered with a plain 404 and nothing is logged.
      */
+    @ExceptionHandler(NotFoundException.class)
+    protected ResponseEntity<Object> handleNotFound(NotFoundException ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ex.getErrorCode(), HttpStatus.NOT_FOUND, null, ex.getMessage());
+    }
 
-    @Override
-    protected ProblemDetail createProblemDetail(Exception ex,
-                                                HttpStatusCode status,
-                                                String defaultDetail,
-                                                String detailMessageCode,
-                                                Object[] detailMessageArguments,
-                                                WebRequest request) {
-        return super.createProblemDetail(ex, status, defaultDetail, detailMessageCode, detailMessageArguments, request);
+    /**
+     * a paging cursor which was not issued by us, for example {@code /customers/page?cursor=abc}
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    protected ResponseEntity<Object> handleInvalidCursor(InvalidCursorException ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.INVALID_CURSOR, HttpStatus.BAD_REQUEST, null, null);
+    }
+
+    /**
+     * The client works on stale data: its If-Match header does not match the current version, or another request
+     * changed the customer between reading and writing it (lost optimistic lock).
+     */
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    protected ResponseEntity<Object> handlePreconditionFailed(Exception ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.PRECONDITION_FAILED, HttpStatus.PRECONDITION_FAILED, null, null);
+    }
+
+    /**
+     * A write broke a database constraint, typically a second customer with an email that is already in use
+     * (unique index uk_customer_email). It is the client's data that conflicts, so a 409 and no error log.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    protected ResponseEntity<Object> handleDataIntegrityViolation(DataIntegrityViolationException ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.DATA_CONFLICT, HttpStatus.CONFLICT, null, null);
+    }
+
+    /**
+     * an Idempotency-Key was reused for a different request, see {@link com.madeeasy.filter.IdempotencyFilter}
+     */
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    protected ResponseEntity<Object> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.IDEMPOTENCY_KEY_REUSED, HttpStatus.UNPROCESSABLE_ENTITY, null, null);
+    }
+
+    /**
+     * a retry gave up waiting for the first request with the same Idempotency-Key, the client may retry again later
+     */
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    protected ResponseEntity<Object> handleIdempotencyKeyInProgress(IdempotencyKeyInProgressException ex, WebRequest request) {
+        long start = System.nanoTime();
+        return problem(ex, request, start, ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, HttpStatus.CONFLICT, null, null);
+    }
+
+    /**
+     * Rejected by {@link com.madeeasy.filter.AdmissionControlFilter} because its endpoint group is at its limit.
+     * This runs while the service is overloaded, so the whole response including the Retry-After header and the
+     * rendered problem bytes is built once per group and then handed out as it is.
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    protected ResponseEntity<Object> handleServiceOverloaded(ServiceOverloadedException ex, WebRequest request) {
+        long start = System.nanoTime();
+        ResponseEntity<Object> response = overloadResponses.get(ex);
+        if (response == null) {
+            response = overloadResponses.computeIfAbsent(ex, e -> {
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+                headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                byte[] body = problemWriter.toBytes(new ApiProblem(ErrorCode.SERVICE_OVERLOADED, e.getStatus(), null));
+                return new ResponseEntity<>(body, HttpHeaders.readOnlyHttpHeaders(headers), e.getStatus());
+            });
+        }
+        return measured(ex, request, start, ErrorCode.SERVICE_OVERLOADED, response);
+    }
+
+    /**
+     * Catch-all for every exception no other handler is responsible for, i.e. a bug or an unavailable database.
+     * Exceptions annotated with {@link ResponseStatus} keep their status, everything else becomes a 500. The message of
+     * an unexpected exception is not sent to the client, it may reveal internals.
+     */
+    @ExceptionHandler(Exception.class)
+    protected ResponseEntity<Object> handleUnhandledException(Exception ex, WebRequest request) {
+        long start = System.nanoTime();
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(ex.getClass(), ResponseStatus.class);
+        HttpStatus status = responseStatus != null ? responseStatus.code() : HttpStatus.INTERNAL_SERVER_ERROR;
+        if (status.is5xxServerError()) {
+            errorLogger.log(ex, request.getDescription(false));
+        }
+        String detail = responseStatus != null && !status.is5xxServerError() && !responseStatus.reason().isEmpty()
+                ? responseStatus.reason()
+                : null;
+        return problem(ex, request, start, genericCode(status), status, null, detail);
     }
 
     /**
      * Whenever an unhandled exception occurs within your application, this method will be triggered. You can perform any
      * custom handling or logging you need within this method. You can also modify the response body, headers, or status as required.
      * In the example, we create an ErrorResponse object with a custom error message and status code, and return it as the response entity.
+     * <p>
+     * The exceptions which are still handled by the super class (e.g. a too large upload) come with a plain
+     * ProblemDetail or no body at all, they get the generic code of their status so every error body has a code.
      */
     @Override
     protected ResponseEntity<Object> handleExceptionInternal(Exception ex,
@@ -307,14 +506,69 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                              HttpHeaders headers,
                                                              HttpStatusCode statusCode,
                                                              WebRequest request) {
-        return super.handleExceptionInternal(ex, body, headers, statusCode, request);
+        long start = System.nanoTime();
+        if (body == null || (body instanceof ProblemDetail problemDetail && !(body instanceof ApiProblem))) {
+            String detail = body instanceof ProblemDetail problemDetail ? problemDetail.getDetail()
+                    : ex instanceof ErrorResponse errorResponse ? errorResponse.getBody().getDetail() : null;
+            body = new ApiProblem(genericCode(statusCode), statusCode, detail);
+        }
+        if (body instanceof ApiProblem apiProblem) {
+            tagSpan(apiProblem.getCode());
+        }
+        ResponseEntity<Object> response = super.handleExceptionInternal(ex, body, headers, statusCode, request);
+        // the super class returns null when the response is already committed
+        errorMetrics.record(ex, response != null ? response.getStatusCode() : statusCode, request, start);
+        return response;
     }
 
-    @Override
-    protected ResponseEntity<Object> createResponseEntity(Object body,
-                                                          HttpHeaders headers,
-                                                          HttpStatusCode statusCode,
-                                                          WebRequest request) {
-        return super.createResponseEntity(body, headers, statusCode, request);
+    private ResponseEntity<Object> validationFailed(Exception ex,
+                                                    WebRequest request,
+                                                    long startNanos,
+                                                    HttpStatusCode status,
+                                                    HttpHeaders headers,
+                                                    List<FieldViolation> violations) {
+        String detail = violations.size() == 1 ? "1 field is invalid" : violations.size() + " fields are invalid";
+        return measured(ex, request, startNanos, ErrorCode.VALIDATION_FAILED,
+                new ResponseEntity<>(new ApiProblem(ErrorCode.VALIDATION_FAILED, status, detail, violations), headers, status));
+    }
+
+    private ResponseEntity<Object> problem(Exception ex,
+                                           WebRequest request,
+                                           long startNanos,
+                                           ErrorCode code,
+                                           HttpStatusCode status,
+                                           HttpHeaders headers,
+                                           String detail) {
+        return measured(ex, request, startNanos, code, new ResponseEntity<>(new ApiProblem(code, status, detail), headers, status));
+    }
+
+    /**
+     * code for failures without a more specific one, by the class of their status
+     */
+    private static ErrorCode genericCode(HttpStatusCode status) {
+        if (status.value() == HttpStatus.NOT_FOUND.value()) {
+            return ErrorCode.NOT_FOUND;
+        }
+        return status.is4xxClientError() ? ErrorCode.INVALID_REQUEST : ErrorCode.INTERNAL_ERROR;
+    }
+
+    private ResponseEntity<Object> measured(Exception ex,
+                                            WebRequest request,
+                                            long startNanos,
+                                            ErrorCode code,
+                                            ResponseEntity<Object> response) {
+        tagSpan(code);
+        errorMetrics.record(ex, response.getStatusCode(), request, startNanos);
+        return response;
+    }
+
+    /**
+     * marks the span of the request with the error code, the span is not recorded when its trace is not sampled
+     */
+    private void tagSpan(ErrorCode code) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.tag(ERROR_CODE_TAG, code.name());
+        }
     }
 }
@@ -0,0 +1,213 @@
+package com.madeeasy.error.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madeeasy.error.ErrorCode;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link ProblemDetail}s, and with them every {@link ApiProblem} of {@link GlobalExceptionHandler}, as
+ * application/problem+json.
+ * <p>
+ * The body is streamed field by field through a Jackson {@link JsonGenerator} directly into the response, so there is
+ * no ObjectMapper, no bean introspection and no intermediate tree or byte array involved. The field names and the
+ * type, title and code of every {@link ErrorCode} are {@link SerializedString}s which keep their encoded bytes after
+ * the first use, only the per-request parts (detail, instance, violations) are escaped per response.
+ * <p>
+ * Spring Boot puts every HttpMessageConverter bean in front of its default converters, so this one wins over the
+ * Jackson converter for problem details. It can only write, requests are never read into a ProblemDetail.
+ */
+@Component
+public class ProblemJsonHttpMessageConverter extends AbstractHttpMessageConverter<ProblemDetail> {
+
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString CODE = new SerializedString("code");
+    private static final SerializedString DETAIL = new SerializedString("detail");
+    private static final SerializedString INSTANCE = new SerializedString("instance");
+    private static final SerializedString ERRORS = new SerializedString("errors");
+    private static final SerializedString FIELD = new SerializedString("field");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+    private static final SerializedString[] TYPES = new SerializedString[ERROR_CODES.length];
+    private static final SerializedString[] TITLES = new SerializedString[ERROR_CODES.length];
+    private static final SerializedString[] CODES = new SerializedString[ERROR_CODES.length];
+
+    static {
+        for (ErrorCode errorCode : ERROR_CODES) {
+            TYPES[errorCode.ordinal()] = new SerializedString(errorCode.getType().toString());
+            TITLES[errorCode.ordinal()] = new SerializedString(errorCode.getTitle());
+            CODES[errorCode.ordinal()] = new SerializedString(errorCode.name());
+        }
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public ProblemJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_PROBLEM_JSON);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * renders a problem once up front, for responses which are handed out over and over again
+     * <p>
+     * Like ObjectMapper.writeValueAsBytes the bytes are collected in a segment borrowed from Jackson's buffer
+     * recycler, only the returned array is allocated per call. A growing ByteArrayOutputStream copied the body twice
+     * and made this more expensive than databind.
+     */
+    public byte[] toBytes(ProblemDetail problem) {
+        ByteArrayBuilder out = new ByteArrayBuilder(jsonFactory._getBufferRecycler());
+        try {
+            write(problem, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ProblemDetail.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ProblemDetail readInternal(Class<? extends ProblemDetail> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Problem details are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(ProblemDetail problem, HttpOutputMessage outputMessage) throws IOException {
+        write(problem, StreamUtils.nonClosing(outputMessage.getBody()));
+    }
+
+    private void write(ProblemDetail problem, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            if (problem instanceof ApiProblem apiProblem) {
+                writeHead(apiProblem, generator);
+            } else {
+                writeHead(problem, generator);
+            }
+            writeString(generator, DETAIL, problem.getDetail());
+            if (problem.getInstance() != null) {
+                writeString(generator, INSTANCE, problem.getInstance().toString());
+            }
+            if (problem instanceof ApiProblem apiProblem && !apiProblem.getErrors().isEmpty()) {
+                writeErrors(apiProblem.getErrors(), generator);
+            }
+            if (problem.getProperties() != null) {
+                for (Map.Entry<String, Object> property : problem.getProperties().entrySet()) {
+                    generator.writeFieldName(property.getKey());
+                    writeValue(property.getValue(), generator);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeHead(ApiProblem problem, JsonGenerator generator) throws IOException {
+        int index = problem.getCode().ordinal();
+        generator.writeFieldName(TYPE);
+        generator.writeString(TYPES[index]);
+        generator.writeFieldName(TITLE);
+        if (problem.getTitle() == problem.getCode().getTitle()) {
+            generator.writeString(TITLES[index]);
+        } else {
+            generator.writeString(problem.getTitle());
+        }
+        generator.writeFieldName(STATUS);
+        generator.writeNumber(problem.getStatus());
+        generator.writeFieldName(CODE);
+        generator.writeString(CODES[index]);
+    }
+
+    private static void writeHead(ProblemDetail problem, JsonGenerator generator) throws IOException {
+        writeString(generator, TYPE, problem.getType().toString());
+        writeString(generator, TITLE, problem.getTitle());
+        generator.writeFieldName(STATUS);
+        generator.writeNumber(problem.getStatus());
+    }
+
+    private static void writeErrors(List<FieldViolation> errors, JsonGenerator generator) throws IOException {
+        generator.writeFieldName(ERRORS);
+        generator.writeStartArray();
+        for (FieldViolation error : errors) {
+            generator.writeStartObject();
+            writeString(generator, FIELD, error.field());
+            writeString(generator, CODE, error.code());
+            writeString(generator, MESSAGE, error.message());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializedString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * the values of {@link ProblemDetail#getProperties()}, only the simple types that end up there are written as
+     * what they are, anything else as its toString
+     */
+    private static void writeValue(Object value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            generator.writeNumber(value.toString());
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Iterable<?> iterable) {
+            generator.writeStartArray();
+            for (Object element : iterable) {
+                writeValue(element, generator);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map<?, ?> map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue(), generator);
+            }
+            generator.writeEndObject();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
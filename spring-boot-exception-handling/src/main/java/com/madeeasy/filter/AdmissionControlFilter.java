@@ -0,0 +1,173 @@
+package com.madeeasy.filter;
+
+import com.madeeasy.error.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load shedding in front of the customer endpoints.
+ * <p>
+ * Requests below one of {@code app.admission.path-prefixes} (/customers and /async/customers) are split into two
+ * groups, reads (GET, HEAD) and writes (everything else), shared by all prefixes. Each group has a semaphore with {@code app.admission.<group>.max-concurrent} permits. A request which gets no
+ * permit is not queued but rejected at once with {@code app.admission.reject-status} (503 by default, 429 is possible)
+ * and a Retry-After header, rendered once per group by GlobalExceptionHandler. So under overload the requests which
+ * are admitted keep their latency, instead of all of them waiting on Tomcat threads and the connection pool until they
+ * time out. Writes hold a connection for longer, so their limit should stay near the pool size.
+ * <p>
+ * The permit is held until the response is complete, for async requests (e.g. the NDJSON export and everything below
+ * /async/customers) until the async processing ends. So the async API counts against the same limits, its bounded
+ * executor queue only comes into play for the requests which were admitted.
+ * <p>
+ * Metrics per group (tag {@code group}): {@code admission.in.flight} (permits in use), {@code admission.limit} and
+ * {@code admission.rejected} (counter).
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final boolean enabled;
+    private final List<String> pathPrefixes;
+    private final Group reads;
+    private final Group writes;
+
+    public AdmissionControlFilter(@Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.admission.enabled:true}") boolean enabled,
+                                  @Value("${app.admission.path-prefixes:/customers,/async/customers}") List<String> pathPrefixes,
+                                  @Value("${app.admission.reject-status:503}") int rejectStatus,
+                                  @Value("${app.admission.reads.max-concurrent:100}") int readsMaxConcurrent,
+                                  @Value("${app.admission.reads.retry-after:1s}") Duration readsRetryAfter,
+                                  @Value("${app.admission.writes.max-concurrent:20}") int writesMaxConcurrent,
+                                  @Value("${app.admission.writes.retry-after:2s}") Duration writesRetryAfter) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.enabled = enabled;
+        this.pathPrefixes = List.copyOf(pathPrefixes);
+        HttpStatus status = HttpStatus.valueOf(rejectStatus);
+        this.reads = new Group("reads", readsMaxConcurrent, status, readsRetryAfter, meterRegistry);
+        this.writes = new Group("writes", writesMaxConcurrent, status, writesRetryAfter, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !isAdmissionControlled(request.getRequestURI());
+    }
+
+    private boolean isAdmissionControlled(String requestUri) {
+        for (String pathPrefix : pathPrefixes) {
+            if (requestUri.startsWith(pathPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? reads : writes;
+        if (!group.permits.tryAcquire()) {
+            group.rejected.increment();
+            handlerExceptionResolver.resolveException(request, response, null, group.rejection);
+            return;
+        }
+        Permit permit = new Permit(group.permits);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private static final class Group {
+
+        private final Semaphore permits;
+        private final Counter rejected;
+        private final ServiceOverloadedException rejection;
+
+        Group(String name, int maxConcurrent, HttpStatus status, Duration retryAfter, MeterRegistry meterRegistry) {
+            this.permits = new Semaphore(maxConcurrent);
+            this.rejection = new ServiceOverloadedException(name, status, Math.max(1, retryAfter.toSeconds()));
+            this.rejected = Counter.builder("admission.rejected")
+                    .description("Requests rejected because all permits were taken")
+                    .tag("group", name)
+                    .register(meterRegistry);
+            Gauge.builder("admission.in.flight", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                    .description("Admitted requests currently in progress")
+                    .tag("group", name)
+                    .register(meterRegistry);
+            Gauge.builder("admission.limit", () -> maxConcurrent)
+                    .description("Maximum number of concurrent requests")
+                    .tag("group", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * released exactly once, either when the filter chain returns or when the async processing ends
+     */
+    private static final class Permit implements AsyncListener {
+
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // onComplete follows once the timeout is handled
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.madeeasy.filter;
+
+import com.madeeasy.error.exception.IdempotencyKeyConflictException;
+import com.madeeasy.error.exception.IdempotencyKeyInProgressException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Honors the {@value #IDEMPOTENCY_KEY} header on the POST endpoints of {@code app.idempotency.paths}
+ * (POST /customers by default), so a client can retry a create after a timeout without creating the customer twice.
+ * <ul>
+ *     <li>The first request with a key is executed, its status, body, Location and ETag are kept in the
+ *     {@link IdempotencyStore} when the same request would get the same answer again: a 2xx, or a 400, 415 or 422
+ *     which only depend on the request itself. Any other response (a 409 of a conflicting write, a 429 or 503 of the
+ *     admission control, a 5xx) or an exception, Errors included, gives the key up and the next retry executes
+ *     again.</li>
+ *     <li>A retry with the same key and the same request gets the stored response, marked with
+ *     {@value #REPLAYED}, without reaching the controller, the service or the database.</li>
+ *     <li>A retry arriving while the first request still runs waits for its response (at most
+ *     {@code app.idempotency.wait-timeout}, then 409).</li>
+ *     <li>The same key with another path or body is a 422.</li>
+ * </ul>
+ * Paths are compared without context path, matrix parameters and trailing slash, e.g. {@code /customers/} and
+ * {@code /customers;v=1} are {@code /customers} too.
+ * The errors are thrown as exceptions and rendered by GlobalExceptionHandler through the
+ * {@link HandlerExceptionResolver}, like the ones of the controllers.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+    /**
+     * headers of the first response which are sent again with its replays
+     */
+    private static final List<String> REPLAYED_HEADERS = List.of(HttpHeaders.LOCATION, HttpHeaders.ETAG);
+
+    private final IdempotencyStore idempotencyStore;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final Set<String> paths;
+    private final long waitTimeoutMillis;
+
+    public IdempotencyFilter(IdempotencyStore idempotencyStore,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+                             @Value("${app.idempotency.paths:/customers}") Set<String> paths,
+                             @Value("${app.idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        this.idempotencyStore = idempotencyStore;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.paths = paths;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY) == null
+                || !paths.contains(normalizedPath(request));
+    }
+
+    /**
+     * path within the application, decoded, without matrix parameters, duplicate and trailing slashes
+     */
+    private static String normalizedPath(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(0, end);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        byte[] body = request.getInputStream().readAllBytes();
+        String fingerprint = fingerprint(request, body);
+        HttpServletRequest bufferedRequest = new BufferedBodyRequest(request, body);
+        try {
+            while (true) {
+                IdempotencyStore.Entry entry = new IdempotencyStore.Entry(fingerprint);
+                IdempotencyStore.Entry existing = idempotencyStore.claim(idempotencyKey, entry);
+                if (existing == null) {
+                    execute(bufferedRequest, response, filterChain, idempotencyKey, entry);
+                    return;
+                }
+                if (!existing.fingerprint().equals(fingerprint)) {
+                    throw new IdempotencyKeyConflictException(idempotencyKey);
+                }
+                IdempotencyStore.StoredResponse storedResponse = await(existing, idempotencyKey);
+                if (storedResponse != null) {
+                    replay(storedResponse, response);
+                    return;
+                }
+                // the first request failed and gave the key up, claim it again
+            }
+        } catch (IdempotencyKeyConflictException | IdempotencyKeyInProgressException e) {
+            handlerExceptionResolver.resolveException(bufferedRequest, response, null, e);
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String idempotencyKey, IdempotencyStore.Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            if (isReplayable(cachingResponse.getStatus()) && !request.isAsyncStarted()) {
+                idempotencyStore.complete(entry, storedResponse(cachingResponse));
+                completed = true;
+            }
+        } finally {
+            // also after an Error, otherwise retries would wait for the key until it expires
+            if (!completed) {
+                idempotencyStore.release(idempotencyKey, entry);
+            }
+        }
+        cachingResponse.copyBodyToResponse();
+    }
+
+    /**
+     * 2xx and the client errors which the same request gets every time, not the ones depending on the state of the
+     * server or of other requests such as 409 or 429
+     */
+    private static boolean isReplayable(int status) {
+        return status >= 200 && status < 300
+                || status == HttpStatus.BAD_REQUEST.value()
+                || status == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()
+                || status == HttpStatus.UNPROCESSABLE_ENTITY.value();
+    }
+
+    private static IdempotencyStore.StoredResponse storedResponse(ContentCachingResponseWrapper response) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String header : REPLAYED_HEADERS) {
+            String value = response.getHeader(header);
+            if (value != null) {
+                headers.put(header, value);
+            }
+        }
+        return new IdempotencyStore.StoredResponse(response.getStatus(), response.getContentType(), headers,
+                response.getContentAsByteArray());
+    }
+
+    /**
+     * @return the response of the first request, null when it failed
+     */
+    private IdempotencyStore.StoredResponse await(IdempotencyStore.Entry entry, String idempotencyKey) {
+        try {
+            return entry.response().get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        }
+    }
+
+    private static void replay(IdempotencyStore.StoredResponse storedResponse, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(storedResponse.status());
+        if (storedResponse.contentType() != null) {
+            response.setContentType(storedResponse.contentType());
+        }
+        storedResponse.headers().forEach(response::setHeader);
+        response.setHeader(REPLAYED, "true");
+        response.setContentLength(storedResponse.body().length);
+        response.getOutputStream().write(storedResponse.body());
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ' ');
+            digest.update(normalizedPath(request).getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * the body was already read for the fingerprint, the controller gets it again from memory
+     */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("Body is already buffered");
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
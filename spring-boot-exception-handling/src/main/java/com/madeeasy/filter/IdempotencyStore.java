@@ -0,0 +1,80 @@
+package com.madeeasy.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Responses of requests with an Idempotency-Key, see {@link IdempotencyFilter}.
+ * <p>
+ * An entry is added when the first request with a key starts and completed with its response when it finishes, so
+ * duplicates arriving in the meantime wait on the same {@link CompletableFuture} instead of executing again.
+ * The entries live in a Caffeine cache bounded by {@code app.idempotency.maximum-size} and expire
+ * {@code app.idempotency.ttl} after they were added. Its map is a {@link java.util.concurrent.ConcurrentHashMap}
+ * underneath, so claiming a key is one {@code putIfAbsent} which only locks the bin of that key.
+ * <p>
+ * Size and evictions are published as the {@code cache.*} metrics with the tag {@code cache=idempotency}, hit and miss
+ * counters stay at 0 as the map view does not record them.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    public IdempotencyStore(@Value("${app.idempotency.maximum-size:10000}") long maximumSize,
+                            @Value("${app.idempotency.ttl:1h}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        Cache<String, Entry> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+        this.entries = cache.asMap();
+    }
+
+    /**
+     * @return null when the key was free and the caller has to execute the request and then {@link #complete} or
+     * {@link #release} the entry, otherwise the entry of the request which used the key first
+     */
+    Entry claim(String idempotencyKey, Entry entry) {
+        return entries.putIfAbsent(idempotencyKey, entry);
+    }
+
+    void complete(Entry entry, StoredResponse response) {
+        entry.response().complete(response);
+    }
+
+    /**
+     * Forgets the key after the request failed, so the next retry executes it again. Requests waiting on the entry
+     * are woken up and try to claim the key themselves.
+     */
+    void release(String idempotencyKey, Entry entry) {
+        entries.remove(idempotencyKey, entry);
+        entry.response().completeExceptionally(new IllegalStateException("Request was not completed"));
+    }
+
+    /**
+     * @param fingerprint hash of method, path and body of the request which claimed the key
+     */
+    record Entry(String fingerprint, CompletableFuture<StoredResponse> response) {
+
+        Entry(String fingerprint) {
+            this(fingerprint, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * @param headers the ones of {@code IdempotencyFilter.REPLAYED_HEADERS} the response had
+     */
+    record StoredResponse(int status, String contentType, Map<String, String> headers, byte[] body) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.madeeasy.filter;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sends the trace id of every request back in the {@value #HEADER} header, so a slow or failed response can be
+ * looked up in {@code /actuator/traces/{traceId}} when it was sampled, and in the logs otherwise.
+ * <p>
+ * The trace is started by Spring's ServerHttpObservationFilter, which runs right before this filter. This one runs
+ * before the admission control, so rejected requests have the header too. The header is set before the chain runs,
+ * the response may be committed when it returns.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class TraceIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Trace-Id";
+
+    private final Tracer tracer;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            response.setHeader(HEADER, span.context().traceId());
+        }
+        filterChain.doFilter(request, response);
+    }
+}
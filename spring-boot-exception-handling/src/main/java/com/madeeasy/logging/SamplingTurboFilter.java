@@ -0,0 +1,76 @@
+package com.madeeasy.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets only every n-th DEBUG/TRACE event of each of the configured loggers through, e.g. the SQL statements of
+ * {@code org.hibernate.SQL}. WARN and above, and every other logger, are not touched.
+ * <p>
+ * Hibernate and Spring ask {@code isDebugEnabled()} before they build the message. The sampling decision is made at
+ * that check, so a dropped SQL statement is not even formatted. When a check was admitted, the further checks and
+ * the event that follow it for the same logger on the same thread are let through as well.
+ * <p>
+ * Configured in logback-spring.xml:
+ * <pre>
+ * &lt;turboFilter class="com.madeeasy.logging.SamplingTurboFilter"&gt;
+ *     &lt;loggerPrefix&gt;org.hibernate.SQL&lt;/loggerPrefix&gt;
+ *     &lt;sampleEvery&gt;100&lt;/sampleEvery&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Logger> admitted = new ThreadLocal<>();
+    private int sampleEvery = 1;
+
+    public void addLoggerPrefix(String loggerPrefix) {
+        loggerPrefixes.add(loggerPrefix);
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (sampleEvery == 1 || level == null || level.isGreaterOrEqual(Level.INFO) || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (admitted.get() == logger) {
+            if (format != null) {
+                admitted.remove();
+            }
+            return FilterReply.NEUTRAL;
+        }
+        AtomicLong counter = counters.get(logger.getName());
+        if (counter == null) {
+            counter = counters.computeIfAbsent(logger.getName(), name -> new AtomicLong(-1));
+        }
+        boolean sampled = counter.incrementAndGet() % sampleEvery == 0;
+        if (format == null && sampled) {
+            admitted.set(logger);
+        }
+        return sampled ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean matches(String loggerName) {
+        for (String loggerPrefix : loggerPrefixes) {
+            if (loggerName.startsWith(loggerPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
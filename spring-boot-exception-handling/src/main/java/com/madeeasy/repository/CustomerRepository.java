@@ -1,9 +1,114 @@
 package com.madeeasy.repository;
 
+import com.madeeasy.dto.CustomerSummary;
 import com.madeeasy.entity.Customer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer,Long> {
+
+    /**
+     * current version of a customer without loading the entity, used to answer conditional requests
+     */
+    @Query("select c.version from Customer c where c.id = :customerId")
+    Optional<Long> findVersionById(Long customerId);
+
+    /**
+     * exact lookup, backed by the unique index on email
+     */
+    Optional<Customer> findByEmail(String email);
+
+    /**
+     * Case-insensitive name prefix search as a keyset page of {@link CustomerSummary}, ordered by (name_lower, id).
+     * The prefix is a range of the index idx_customer_name_lower_id: the page starts after (afterName, afterId), which
+     * must not lie before the prefix (see {@code Position.atLeast}), and ends before prefixUpperBound, the smallest
+     * string greater than every string with the prefix. Plain comparisons of bind parameters are seek conditions even
+     * in a generic plan, where PostgreSQL cannot turn a LIKE pattern into an index range. There is no second lower
+     * bound on name_lower, with two of them PostgreSQL may start at the weaker one and filter up to the cursor.
+     * A range only covers exactly the names with the prefix in code point order, which is why name_lower is
+     * {@code collate "C"} on PostgreSQL (V4).
+     */
+    @Query("""
+            select new com.madeeasy.dto.CustomerSummary(c.id, c.name, c.email)
+            from Customer c
+            where (c.nameLower, c.id) > (:afterName, :afterId)
+              and c.nameLower < :prefixUpperBound
+            order by c.nameLower, c.id""")
+    List<CustomerSummary> searchByNamePrefix(String prefixUpperBound, String afterName, Long afterId, Pageable pageable);
+
+    /**
+     * Partial update in a single UPDATE statement, without loading the customer first. A null name or email keeps the
+     * current value. When version is given, the row is only updated if it still has that version.
+     * {@code @UpdateTimestamp}, {@code @Version} and the {@code @PreUpdate} of name_lower are not applied to JPQL
+     * updates, so all of them are set here; nameLower has to be {@code Customer.normalizeName(name)}.
+     *
+     * @return number of updated rows, 0 when the customer does not exist or has another version
+     */
+    @Modifying
+    @Query("""
+            update Customer c
+            set c.name = coalesce(:name, c.name),
+                c.nameLower = coalesce(:nameLower, c.nameLower),
+                c.email = coalesce(:email, c.email),
+                c.updatedAt = instant,
+                c.version = c.version + 1
+            where c.id = :customerId and (:version is null or c.version = :version)""")
+    int patchById(Long customerId, String name, String nameLower, String email, Long version);
+
+    /**
+     * single DELETE statement, unlike {@link #deleteById(Object)} which loads the customer before removing it
+     *
+     * @return number of deleted rows, 0 when the customer does not exist or has another version
+     */
+    @Modifying
+    @Query("delete from Customer c where c.id = :customerId and (:version is null or c.version = :version)")
+    int deleteDirectlyById(Long customerId, Long version);
+
+    /**
+     * deletes all given customers in one statement, ids which do not exist are ignored
+     */
+    @Modifying
+    @Query("delete from Customer c where c.id in :customerIds")
+    int deleteDirectlyByIdIn(Collection<Long> customerIds);
+
+    /**
+     * keyset page i.e. {@code where id > :afterId order by id limit :pageSize}, backed by the primary key index
+     */
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /**
+     * {@link CustomerSummary} of one customer, built by a constructor expression so no entity is hydrated
+     */
+    @Query("select new com.madeeasy.dto.CustomerSummary(c.id, c.name, c.email) from Customer c where c.id = :customerId")
+    Optional<CustomerSummary> findSummaryById(Long customerId);
+
+    /**
+     * keyset page of {@link CustomerSummary}, like {@link #findByIdGreaterThanOrderByIdAsc(Long, Pageable)}
+     */
+    @Query("select new com.madeeasy.dto.CustomerSummary(c.id, c.name, c.email) from Customer c where c.id > :afterId order by c.id")
+    List<CustomerSummary> findSummariesAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Reads the whole table through a JDBC cursor instead of a list. Rows are fetched from the database in batches
+     * of the fetch size and loaded read-only, so Hibernate keeps no dirty-checking snapshot of them.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Customer c order by c.id")
+    Stream<Customer> streamAllOrderedById();
 }
@@ -0,0 +1,49 @@
+package com.madeeasy.repository;
+
+import com.madeeasy.dto.CustomerSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Reads {@link CustomerSummary} with plain SQL through {@link JdbcTemplate}, Hibernate is not involved at all:
+ * no query translation, no persistence context, the row mapper builds the record from the result set.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerSummaryJdbcRepository {
+
+    private static final RowMapper<CustomerSummary> SUMMARY_MAPPER = (resultSet, rowNumber) -> new CustomerSummary(
+            resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<CustomerSummary> findSummaryById(Long customerId) {
+        List<CustomerSummary> summaries = jdbcTemplate.query(
+                "select id, name, email from customer where id = ?", SUMMARY_MAPPER, customerId);
+        return summaries.isEmpty() ? Optional.empty() : Optional.of(summaries.get(0));
+    }
+
+    /**
+     * hands every customer to the action, row by row while the result set is read, nothing is collected
+     */
+    public void forEachSummary(Consumer<CustomerSummary> action) {
+        jdbcTemplate.query("select id, name, email from customer order by id",
+                resultSet -> {
+                    action.accept(SUMMARY_MAPPER.mapRow(resultSet, 0));
+                });
+    }
+
+    /**
+     * keyset page, same as {@link CustomerRepository#findSummariesAfter(Long, org.springframework.data.domain.Pageable)}
+     */
+    public List<CustomerSummary> findSummariesAfter(Long afterId, int limit) {
+        return jdbcTemplate.query(
+                "select id, name, email from customer where id > ? order by id limit ?", SUMMARY_MAPPER, afterId, limit);
+    }
+}
@@ -0,0 +1,165 @@
+package com.madeeasy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.madeeasy.dto.BulkCreateResult;
+import com.madeeasy.dto.BulkItemResult;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.error.ErrorCode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk creation of customers from a JSON array or an NDJSON body.
+ * <p>
+ * The body is read element by element and never held in memory as a whole. Valid elements are collected into chunks
+ * of {@code app.bulk.chunk-size}, and each chunk is stored by {@link CustomerService#createCustomers(List)} in a
+ * transaction of its own with JDBC batching. Invalid elements are reported and skipped.
+ * <p>
+ * A chunk which violates a constraint, e.g. a duplicate email, is split in halves which are stored again, down to
+ * single elements. So only the offending elements are rejected (with {@link ErrorCode#DATA_CONFLICT}), for one bad
+ * element in a chunk of 500 this costs about 18 more transactions. Any other database failure rejects the whole chunk
+ * with {@link ErrorCode#INTERNAL_ERROR}, splitting would only repeat it. The database's message is logged, never put
+ * in the response, it names tables and constraints. The chunks before a failure stay committed.
+ * <p>
+ * A malformed element stops the reading, as the position of the next element cannot be recovered reliably.
+ * Everything read up to that point is still stored.
+ */
+@Slf4j
+@Service
+public class CustomerBulkIngestService {
+
+    private static final List<String> CONFLICT = List.of("Conflicts with an existing customer, e.g. the same email");
+    private static final List<String> NOT_STORED = List.of("Not stored, the chunk of this element failed in the database");
+
+    private final CustomerService customerService;
+    private final Validator validator;
+    private final ObjectReader customerReader;
+    private final int chunkSize;
+
+    public CustomerBulkIngestService(CustomerService customerService,
+                                     Validator validator,
+                                     ObjectMapper objectMapper,
+                                     @Value("${app.bulk.chunk-size:500}") int chunkSize) {
+        this.customerService = customerService;
+        this.validator = validator;
+        this.customerReader = objectMapper.readerFor(Customer.class);
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkCreateResult createCustomers(InputStream body) throws IOException {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Customer> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+        try (MappingIterator<Customer> customers = customerReader.readValues(body)) {
+            while (hasNext(customers, index, results)) {
+                Customer customer;
+                try {
+                    customer = customers.nextValue();
+                } catch (IOException e) {
+                    results.add(malformed(index, e));
+                    break;
+                }
+                List<String> errors = validate(customer);
+                if (errors.isEmpty()) {
+                    customer.setId(null);
+                    customer.setVersion(null);
+                    chunk.add(customer);
+                    chunkIndexes.add(index);
+                } else {
+                    results.add(BulkItemResult.rejected(index, ErrorCode.VALIDATION_FAILED, errors));
+                }
+                if (chunk.size() == chunkSize) {
+                    store(chunk, chunkIndexes, results);
+                }
+                index++;
+            }
+        }
+        store(chunk, chunkIndexes, results);
+        results.sort((first, second) -> Integer.compare(first.index(), second.index()));
+        int created = (int) results.stream().filter(result -> result.id() != null).count();
+        return new BulkCreateResult(results.size(), created, results.size() - created, results);
+    }
+
+    private boolean hasNext(MappingIterator<Customer> customers, int index, List<BulkItemResult> results) {
+        try {
+            return customers.hasNextValue();
+        } catch (IOException e) {
+            results.add(malformed(index, e));
+            return false;
+        }
+    }
+
+    private static BulkItemResult malformed(int index, IOException e) {
+        String message = e instanceof JsonProcessingException jsonException ? jsonException.getOriginalMessage()
+                : e.getMessage();
+        return BulkItemResult.rejected(index, ErrorCode.MALFORMED_BODY, List.of("Invalid JSON: " + message));
+    }
+
+    private List<String> validate(Customer customer) {
+        if (customer == null) {
+            return List.of("Element must be a JSON object");
+        }
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        if (violations.isEmpty()) {
+            return List.of();
+        }
+        List<String> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<Customer> violation : violations) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+
+    private void store(List<Customer> chunk, List<Integer> chunkIndexes, List<BulkItemResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        storeOrSplit(chunk, chunkIndexes, results);
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private void storeOrSplit(List<Customer> customers, List<Integer> indexes, List<BulkItemResult> results) {
+        try {
+            List<Customer> created = customerService.createCustomers(customers);
+            for (int i = 0; i < created.size(); i++) {
+                results.add(BulkItemResult.created(indexes.get(i), created.get(i).getId()));
+            }
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            // the flush in createCustomers throws Hibernate's exception, Spring only translates failures at commit
+            if (customers.size() == 1) {
+                log.debug("Bulk element {} violates a constraint: {}", indexes.get(0), e.getMessage());
+                results.add(BulkItemResult.rejected(indexes.get(0), ErrorCode.DATA_CONFLICT, CONFLICT));
+                return;
+            }
+            // the rolled back inserts left their generated ids and versions behind
+            for (Customer customer : customers) {
+                customer.setId(null);
+                customer.setVersion(null);
+            }
+            int half = customers.size() / 2;
+            storeOrSplit(customers.subList(0, half), indexes.subList(0, half), results);
+            storeOrSplit(customers.subList(half, customers.size()), indexes.subList(half, indexes.size()), results);
+        } catch (RuntimeException e) {
+            log.warn("Bulk chunk of {} customers could not be stored", customers.size(), e);
+            for (Integer index : indexes) {
+                results.add(BulkItemResult.rejected(index, ErrorCode.INTERNAL_ERROR, NOT_STORED));
+            }
+        }
+    }
+}
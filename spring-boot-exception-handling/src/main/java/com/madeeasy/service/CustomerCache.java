@@ -0,0 +1,100 @@
+package com.madeeasy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.madeeasy.entity.Customer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache in front of {@code CustomerRepository.findById}.
+ * <p>
+ * Caffeine evicts by size using W-TinyLFU, so a hot set of ids stays in memory while one-off lookups are dropped
+ * first. Every entry also expires after a while. Lookup misses are cached as {@link Optional#empty()} with a much
+ * shorter ttl, so a client probing unknown ids gets its 404 without a query against the database.
+ * <p>
+ * Writes have to call {@link #evict(Long)}. The entry is removed right away and, when a transaction is running,
+ * again after it completes, so a concurrent reader cannot put back the state from before the commit.
+ * <p>
+ * The counters are published as the {@code cache.*} metrics with the tag {@code cache=customers}.
+ */
+@Component
+public class CustomerCache {
+
+    private final Cache<Long, Optional<Customer>> cache;
+
+    public CustomerCache(@Value("${app.cache.customers.maximum-size:10000}") long maximumSize,
+                         @Value("${app.cache.customers.ttl:10m}") Duration ttl,
+                         @Value("${app.cache.customers.negative-ttl:5s}") Duration negativeTtl,
+                         MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new HitOrMissExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+    }
+
+    /**
+     * returns the cached lookup result, the loader is called at most once per id even when many threads miss at the same time
+     */
+    public Optional<Customer> get(Long customerId, Function<Long, Optional<Customer>> loader) {
+        return cache.get(customerId, loader);
+    }
+
+    /**
+     * @return the cached customer, null when it is not cached (or cached as missing), nothing is loaded
+     */
+    public Customer getIfCached(Long customerId) {
+        Optional<Customer> customer = cache.getIfPresent(customerId);
+        return customer == null ? null : customer.orElse(null);
+    }
+
+    public void evict(Long customerId) {
+        cache.invalidate(customerId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(customerId);
+                }
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private record HitOrMissExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Long, Optional<Customer>> {
+
+        @Override
+        public long expireAfterCreate(Long key, Optional<Customer> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, Optional<Customer> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, Optional<Customer> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.madeeasy.service;
+
+import com.madeeasy.dto.CustomerSearchPage.Position;
+import com.madeeasy.dto.CustomerSummary;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.repository.CustomerSummaryJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Optional in-memory index for name prefix searches with a high request rate, e.g. autocomplete
+ * ({@code app.search.prefix-index.enabled}).
+ * <p>
+ * All customers are kept as {@link CustomerSummary} in a skip list sorted like the database index,
+ * by (lower-cased name, id). A prefix search is a seek to the first key of the prefix and a walk until the prefix
+ * ends, it answers without a database round-trip. It is loaded once the application is ready and kept in sync by
+ * {@link CustomerService}, which reports every write here; the changes are applied after the commit. Concurrent
+ * writes to the same customer may be applied in another order than they were committed, the index is meant for
+ * suggestions and not as the source of truth.
+ * <p>
+ * When disabled every method is a no-op and searches go to the database.
+ */
+@Slf4j
+@Component
+public class CustomerNameIndex {
+
+    private final boolean enabled;
+    private final CustomerSummaryJdbcRepository customerSummaryJdbcRepository;
+    private final NavigableMap<Position, CustomerSummary> byName = new ConcurrentSkipListMap<>(Position.ORDER);
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public CustomerNameIndex(@Value("${app.search.prefix-index.enabled:false}") boolean enabled,
+                             CustomerSummaryJdbcRepository customerSummaryJdbcRepository) {
+        this.enabled = enabled;
+        this.customerSummaryJdbcRepository = customerSummaryJdbcRepository;
+    }
+
+    /**
+     * @return true when searches can be answered from memory
+     */
+    public boolean isAvailable() {
+        return enabled && loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        int[] count = {0};
+        customerSummaryJdbcRepository.forEachSummary(summary -> {
+            put(summary);
+            count[0]++;
+        });
+        loaded = true;
+        log.info("Customer name index loaded with {} customers in {} ms", count[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return up to limit customers whose lower-cased name starts with the normalized prefix, after the given position
+     */
+    public List<CustomerSummary> search(String normalizedPrefix, Position after, int limit) {
+        List<CustomerSummary> result = new ArrayList<>(Math.min(limit, 64));
+        Position from = after.atLeast(normalizedPrefix);
+        for (Map.Entry<Position, CustomerSummary> entry : byName.tailMap(from, false).entrySet()) {
+            if (!entry.getKey().nameLower().startsWith(normalizedPrefix) || result.size() == limit) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    public void added(CustomerSummary summary) {
+        if (enabled) {
+            afterCommit(() -> put(summary));
+        }
+    }
+
+    /**
+     * a null name or email keeps the indexed value, like a PATCH
+     */
+    public void changed(Long customerId, String name, String email) {
+        if (enabled) {
+            afterCommit(() -> {
+                Position position = positions.get(customerId);
+                CustomerSummary current = position == null ? null : byName.get(position);
+                if (current != null) {
+                    put(new CustomerSummary(customerId,
+                            name != null ? name : current.name(),
+                            email != null ? email : current.email()));
+                }
+            });
+        }
+    }
+
+    public void removed(Long customerId) {
+        if (enabled) {
+            afterCommit(() -> remove(customerId));
+        }
+    }
+
+    private void put(CustomerSummary summary) {
+        Position position = new Position(Customer.normalizeName(summary.name()), summary.id());
+        Position previous = positions.put(summary.id(), position);
+        if (previous != null && !previous.equals(position)) {
+            byName.remove(previous);
+        }
+        byName.put(position, summary);
+    }
+
+    private void remove(Long customerId) {
+        Position position = positions.remove(customerId);
+        if (position != null) {
+            byName.remove(position);
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -1,11 +1,20 @@
 package com.madeeasy.service;
 
 import com.madeeasy.controller.CustomerController;
+import com.madeeasy.dto.CustomerPage;
+import com.madeeasy.dto.CustomerPatch;
+import com.madeeasy.dto.CustomerSearchPage;
+import com.madeeasy.dto.CustomerSummary;
 import com.madeeasy.entity.Customer;
+import com.madeeasy.error.exception.CustomerEmailNotFoundException;
+import com.madeeasy.error.exception.CustomerNotFoundException;
+import com.madeeasy.error.exception.PreconditionFailedException;
 import com.madeeasy.repository.CustomerRepository;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
@@ -13,7 +22,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.MissingPathVariableException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(isolation = Isolation.READ_COMMITTED,
@@ -22,14 +34,58 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CustomerService {
     private final CustomerRepository customerRepository;
+    private final CustomerCache customerCache;
+    private final CustomerNameIndex customerNameIndex;
+    private final EntityManager entityManager;
+
+    /**
+     * a missing customer is an expected outcome, so its exception skips the stack trace unless this is switched on
+     */
+    @Value("${app.errors.capture-stack-traces:false}")
+    private boolean captureStackTraces;
 
     @Transactional(isolation = Isolation.READ_COMMITTED,
             propagation = Propagation.REQUIRED,
             readOnly = false)
     public Customer createCustomer(Customer customer) {
-        return customerRepository.save(customer);
+        // always a new row, an id or version sent by the client would turn the save into a merge
+        customer.setId(null);
+        customer.setVersion(null);
+        Customer createdCustomer = customerRepository.save(customer);
+        // drops a cached miss for the new id
+        customerCache.evict(createdCustomer.getId());
+        customerNameIndex.added(summaryOf(createdCustomer));
+        return createdCustomer;
+    }
+
+    /**
+     * Stores a chunk of new customers in one transaction. The inserts go out as JDBC batches
+     * ({@code hibernate.jdbc.batch_size}) and the persistence context is cleared afterwards,
+     * so a long running bulk import does not keep every stored entity in memory.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED,
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    public List<Customer> createCustomers(List<Customer> customers) {
+        for (Customer customer : customers) {
+            entityManager.persist(customer);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<Customer> createdCustomers = List.copyOf(customers);
+        for (Customer customer : createdCustomers) {
+            customerCache.evict(customer.getId());
+            customerNameIndex.added(summaryOf(customer));
+        }
+        return createdCustomers;
     }
 
+    /**
+     * lookups are served from {@link CustomerCache}, so they do not open a transaction of their own,
+     * only a cache miss reaches the repository which then runs in its own read-only transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS,
+            readOnly = true)
     public Customer getCustomerById(Long customerId) throws MissingPathVariableException, NoSuchMethodException {
         if (String.valueOf(customerId).isBlank()){
             MethodParameter methodParameter = MethodParameter
@@ -37,27 +93,208 @@ public class CustomerService {
                     0); // here 0 is parameter index i.e. it will go like 0,1,2,3.... and so on.
             throw new MissingPathVariableException("customerRepository", methodParameter);
         }
-        return customerRepository.findById(customerId)
-                .orElseThrow(() -> new EntityNotFoundException("Customer not found: " + customerId));
+        return customerCache.get(customerId, customerRepository::findById)
+                .orElseThrow(() -> customerNotFound(customerId));
         //throw new ErrorResponseException("Customer not found", HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Copies name and email onto the stored customer. When expectedVersion is given (from If-Match) it has to be the
+     * current version. The UPDATE statement checks the version again, so a concurrent update between reading and
+     * writing fails with an optimistic locking exception instead of being overwritten.
+     */
     @Transactional(isolation = Isolation.READ_COMMITTED,
             propagation = Propagation.REQUIRED,
             readOnly = false)
-    public Customer updateCustomer(Customer customer) {
-        return customerRepository.save(customer);
+    public Customer updateCustomer(Customer customer, Long expectedVersion) {
+        Customer existingCustomer = customerRepository.findById(customer.getId())
+                .orElseThrow(() -> customerNotFound(customer.getId()));
+        checkVersion(existingCustomer, expectedVersion);
+        existingCustomer.setName(customer.getName());
+        existingCustomer.setEmail(customer.getEmail());
+        customerCache.evict(customer.getId());
+        customerNameIndex.changed(customer.getId(), customer.getName(), customer.getEmail());
+        return existingCustomer;
+    }
+
+    /**
+     * Applies the non-null fields of the patch with one UPDATE statement, the customer is not read before.
+     * When expectedVersion is given (from If-Match) the statement only matches that version. Only when nothing was
+     * updated, one more query finds out whether the customer is missing or was changed in the meantime.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED,
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    public void patchCustomer(Long customerId, CustomerPatch patch, Long expectedVersion) {
+        int updated = customerRepository.patchById(customerId, patch.name(), Customer.normalizeName(patch.name()),
+                patch.email(), expectedVersion);
+        if (updated == 0) {
+            throw notFoundOrChanged(customerId, expectedVersion);
+        }
+        customerCache.evict(customerId);
+        customerNameIndex.changed(customerId, patch.name(), patch.email());
     }
 
-    public void deleteCustomer(Long customerId) {
-        customerRepository.deleteById(customerId);
+    /**
+     * Deletes with one DELETE statement, the customer is not loaded before. With expectedVersion (from If-Match) only
+     * that version is deleted, like {@link #patchCustomer(Long, CustomerPatch, Long)}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED,
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    public void deleteCustomer(Long customerId, Long expectedVersion) {
+        int deleted = customerRepository.deleteDirectlyById(customerId, expectedVersion);
+        if (deleted == 0) {
+            throw notFoundOrChanged(customerId, expectedVersion);
+        }
+        customerCache.evict(customerId);
+        customerNameIndex.removed(customerId);
+    }
+
+    /**
+     * deletes all given customers with one DELETE statement
+     *
+     * @return number of customers actually deleted, ids which do not exist are skipped
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED,
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    public int deleteCustomers(Collection<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return 0;
+        }
+        int deleted = customerRepository.deleteDirectlyByIdIn(customerIds);
+        customerIds.forEach(customerCache::evict);
+        customerIds.forEach(customerNameIndex::removed);
+        return deleted;
+    }
+
+    /**
+     * Current version of a customer for conditional GETs. A cached customer answers it right away, otherwise only the
+     * version column is read, the entity is not loaded.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS,
+            readOnly = true)
+    public Long getCustomerVersion(Long customerId) {
+        Customer cachedCustomer = customerCache.getIfCached(customerId);
+        if (cachedCustomer != null) {
+            return cachedCustomer.getVersion();
+        }
+        return customerRepository.findVersionById(customerId)
+                .orElseThrow(() -> customerNotFound(customerId));
+    }
+
+    private static void checkVersion(Customer customer, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(customer.getVersion())) {
+            throw new PreconditionFailedException("Customer " + customer.getId() + " has version " + customer.getVersion()
+                    + ", expected " + expectedVersion);
+        }
     }
 
     public List<Customer> getAllCustomers() {
         return customerRepository.findAll();
     }
 
+    /**
+     * one more row than requested is read, so the last page is recognized without an extra count query
+     */
+    public CustomerPage getCustomersPage(String cursor, int pageSize) {
+        long afterId = CustomerPage.decodeCursor(cursor);
+        List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize + 1));
+        if (customers.size() <= pageSize) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, pageSize);
+        return new CustomerPage(page, CustomerPage.encodeCursor(page.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Hands every customer to the action one by one, ordered by id. Each entity is detached from the persistence
+     * context right after the action, so memory stays flat no matter how large the table is.
+     */
+    public void forEachCustomer(Consumer<Customer> action) {
+        try (Stream<Customer> customers = customerRepository.streamAllOrderedById()) {
+            customers.forEach(customer -> {
+                action.accept(customer);
+                entityManager.detach(customer);
+            });
+        }
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS,
+            readOnly = true)
     public Customer getCustomerByIdWithRequestParameter(Long customerId) {
-        return customerRepository.findById(customerId).get();
+        return customerCache.get(customerId, customerRepository::findById)
+                .orElseThrow(() -> customerNotFound(customerId));
+    }
+
+    /**
+     * exact, case-sensitive lookup through the unique email index
+     */
+    @Transactional(propagation = Propagation.SUPPORTS,
+            readOnly = true)
+    public Customer getCustomerByEmail(String email) {
+        return customerRepository.findByEmail(email)
+                .orElseThrow(() -> new CustomerEmailNotFoundException(email, captureStackTraces));
+    }
+
+    /**
+     * Case-insensitive name prefix search, one keyset page of at most pageSize customers ordered by name and id.
+     * Answered from the {@link CustomerNameIndex} when it is enabled and loaded, otherwise by a range scan of the
+     * name index in the database.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS,
+            readOnly = true)
+    public CustomerSearchPage searchCustomersByName(String namePrefix, String cursor, int pageSize) {
+        String normalizedPrefix = Customer.normalizeName(namePrefix);
+        CustomerSearchPage.Position after = CustomerSearchPage.decodeCursor(cursor);
+        List<CustomerSummary> customers;
+        if (customerNameIndex.isAvailable()) {
+            customers = customerNameIndex.search(normalizedPrefix, after, pageSize + 1);
+        } else {
+            String upperBound = prefixUpperBound(normalizedPrefix);
+            CustomerSearchPage.Position from = after.atLeast(normalizedPrefix);
+            customers = upperBound == null
+                    ? List.of()
+                    : customerRepository.searchByNamePrefix(upperBound, from.nameLower(), from.id(),
+                    PageRequest.of(0, pageSize + 1));
+        }
+        if (customers.size() <= pageSize) {
+            return new CustomerSearchPage(customers, null);
+        }
+        List<CustomerSummary> page = customers.subList(0, pageSize);
+        CustomerSummary last = page.get(pageSize - 1);
+        return new CustomerSearchPage(page, CustomerSearchPage.encodeCursor(Customer.normalizeName(last.name()), last.id()));
+    }
+
+    /**
+     * "ab" -> "ac": the prefix with its last char incremented, trailing U+FFFF chars are dropped first.
+     *
+     * @return null for a prefix of U+FFFF only, a noncharacter which is not expected in names
+     */
+    private static String prefixUpperBound(String prefix) {
+        int last = prefix.length() - 1;
+        while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+            last--;
+        }
+        if (last < 0) {
+            return null;
+        }
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    private static CustomerSummary summaryOf(Customer customer) {
+        return new CustomerSummary(customer.getId(), customer.getName(), customer.getEmail());
+    }
+
+    private RuntimeException notFoundOrChanged(Long customerId, Long expectedVersion) {
+        if (expectedVersion != null && customerRepository.findVersionById(customerId).isPresent()) {
+            return new PreconditionFailedException("Customer " + customerId + " does not have version " + expectedVersion);
+        }
+        return customerNotFound(customerId);
+    }
+
+    private CustomerNotFoundException customerNotFound(Long customerId) {
+        return new CustomerNotFoundException(customerId, captureStackTraces);
     }
 }
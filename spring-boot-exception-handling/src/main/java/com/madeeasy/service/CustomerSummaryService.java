@@ -0,0 +1,76 @@
+package com.madeeasy.service;
+
+import com.madeeasy.dto.CustomerPage;
+import com.madeeasy.dto.CustomerSummary;
+import com.madeeasy.dto.CustomerSummaryPage;
+import com.madeeasy.error.exception.CustomerNotFoundException;
+import com.madeeasy.repository.CustomerRepository;
+import com.madeeasy.repository.CustomerSummaryJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lean reads of customers as {@link CustomerSummary} instead of the {@link com.madeeasy.entity.Customer} entity.
+ * <p>
+ * Which read path is taken is set per endpoint: {@code app.read-model.lookup} for single customers and
+ * {@code app.read-model.page} for listings, see {@link ReadModel}. Summaries are not cached, the customer cache
+ * holds entities.
+ */
+@Service
+@Transactional(propagation = Propagation.SUPPORTS,
+        readOnly = true)
+public class CustomerSummaryService {
+
+    private final CustomerRepository customerRepository;
+    private final CustomerSummaryJdbcRepository customerSummaryJdbcRepository;
+    private final ReadModel lookupReadModel;
+    private final ReadModel pageReadModel;
+    private final boolean captureStackTraces;
+
+    public CustomerSummaryService(CustomerRepository customerRepository,
+                                  CustomerSummaryJdbcRepository customerSummaryJdbcRepository,
+                                  @Value("${app.read-model.lookup:jdbc}") ReadModel lookupReadModel,
+                                  @Value("${app.read-model.page:jdbc}") ReadModel pageReadModel,
+                                  @Value("${app.errors.capture-stack-traces:false}") boolean captureStackTraces) {
+        this.customerRepository = customerRepository;
+        this.customerSummaryJdbcRepository = customerSummaryJdbcRepository;
+        this.lookupReadModel = lookupReadModel;
+        this.pageReadModel = pageReadModel;
+        this.captureStackTraces = captureStackTraces;
+    }
+
+    public CustomerSummary getCustomerSummary(Long customerId) {
+        return getCustomerSummary(customerId, lookupReadModel);
+    }
+
+    public CustomerSummary getCustomerSummary(Long customerId, ReadModel readModel) {
+        Optional<CustomerSummary> summary = switch (readModel) {
+            case JPQL -> customerRepository.findSummaryById(customerId);
+            case JDBC -> customerSummaryJdbcRepository.findSummaryById(customerId);
+        };
+        return summary.orElseThrow(() -> new CustomerNotFoundException(customerId, captureStackTraces));
+    }
+
+    public CustomerSummaryPage getCustomerSummariesPage(String cursor, int pageSize) {
+        return getCustomerSummariesPage(cursor, pageSize, pageReadModel);
+    }
+
+    public CustomerSummaryPage getCustomerSummariesPage(String cursor, int pageSize, ReadModel readModel) {
+        long afterId = CustomerPage.decodeCursor(cursor);
+        List<CustomerSummary> summaries = switch (readModel) {
+            case JPQL -> customerRepository.findSummariesAfter(afterId, PageRequest.of(0, pageSize + 1));
+            case JDBC -> customerSummaryJdbcRepository.findSummariesAfter(afterId, pageSize + 1);
+        };
+        if (summaries.size() <= pageSize) {
+            return new CustomerSummaryPage(summaries, null);
+        }
+        List<CustomerSummary> page = summaries.subList(0, pageSize);
+        return new CustomerSummaryPage(page, CustomerPage.encodeCursor(page.get(pageSize - 1).id()));
+    }
+}
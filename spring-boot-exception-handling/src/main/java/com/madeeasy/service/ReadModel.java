@@ -0,0 +1,17 @@
+package com.madeeasy.service;
+
+/**
+ * How {@link CustomerSummaryService} reads summaries, configured per endpoint under {@code app.read-model}.
+ */
+public enum ReadModel {
+
+    /**
+     * JPQL constructor expression through Hibernate, the rows are not hydrated into entities
+     */
+    JPQL,
+
+    /**
+     * plain SQL through JdbcTemplate and a row mapper, bypasses Hibernate entirely
+     */
+    JDBC
+}
@@ -0,0 +1,61 @@
+package com.madeeasy.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the last {@code app.tracing.buffer-size} finished spans in memory, the older ones are dropped. Nothing is
+ * sent anywhere, the spans are read through the {@link TracesEndpoint traces actuator endpoint}.
+ * <p>
+ * Spring Boot hands every SpanExporter bean to a batching span processor, so the spans arrive here from its own
+ * thread every few seconds and the request threads never wait for this buffer. Another exporter, e.g. OTLP, can be
+ * added as a bean next to this one.
+ */
+@Component
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final ArrayDeque<SpanData> spans;
+
+    public InMemorySpanExporter(@Value("${app.tracing.buffer-size:10000}") int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> finished) {
+        for (SpanData span : finished) {
+            if (spans.size() == capacity) {
+                spans.pollFirst();
+            }
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * the buffered spans, oldest first
+     */
+    public synchronized List<SpanData> spans() {
+        return new ArrayList<>(spans);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,87 @@
+package com.madeeasy.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * One span per call of a controller, service or repository method, e.g. {@code CustomerService.getCustomerById}
+ * with the tag {@code layer=service}. A method which throws marks its span as failed.
+ * <p>
+ * Spans are only created inside a sampled trace. For the requests which are not sampled (see
+ * {@code management.tracing.sampling.probability}) the advice is a lookup of the current span and nothing else, no
+ * span, no name and no scope is allocated. That keeps the cost at full load with a low sampling rate close to zero.
+ * <p>
+ * The aspect has the highest precedence, so the span of a {@code @Transactional} service method contains the
+ * transaction span of {@link TransactionSpanListener}, and that one the repository calls. The time a span spends
+ * outside its children is the method's own work, e.g. the commit and Hibernate flush for a transaction span.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class MethodSpanAspect {
+
+    /**
+     * simple name of the bean class behind a proxy class, the repository interface for Spring Data repositories
+     */
+    private static final ClassValue<String> TYPE_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            if (Proxy.isProxyClass(type)) {
+                for (Class<?> candidate : type.getInterfaces()) {
+                    if (Repository.class.isAssignableFrom(candidate)
+                            && !candidate.getName().startsWith("org.springframework.")) {
+                        return candidate.getSimpleName();
+                    }
+                }
+            }
+            return ClassUtils.getUserClass(type).getSimpleName();
+        }
+    };
+
+    private final Tracer tracer;
+
+    @Around("@within(org.springframework.web.bind.annotation.RestController)")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "controller");
+    }
+
+    @Around("@within(org.springframework.stereotype.Service)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "service");
+    }
+
+    @Around("@within(org.springframework.stereotype.Repository) || this(org.springframework.data.repository.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "repository");
+    }
+
+    private Object trace(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        if (!Spans.sampled(tracer.currentSpan())) {
+            return joinPoint.proceed();
+        }
+        Span span = tracer.nextSpan()
+                .name(TYPE_NAMES.get(joinPoint.getThis().getClass()) + "." + joinPoint.getSignature().getName())
+                .tag("layer", layer)
+                .start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.madeeasy.tracing;
+
+import io.micrometer.tracing.Span;
+
+final class Spans {
+
+    private Spans() {
+    }
+
+    /**
+     * true when there is a current span and its trace is recorded; child spans of an unsampled trace are not created
+     */
+    static boolean sampled(Span current) {
+        return current != null && Boolean.TRUE.equals(current.context().sampled());
+    }
+}
@@ -0,0 +1,113 @@
+package com.madeeasy.tracing;
+
+import com.madeeasy.error.handler.GlobalExceptionHandler;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The recently sampled traces from {@link InMemorySpanExporter}.
+ * <ul>
+ *     <li>{@code GET /actuator/traces?limit=50} - newest traces first, with their root span, duration, number of
+ *     spans and the error code when the request failed</li>
+ *     <li>{@code GET /actuator/traces/{traceId}} - all spans of one trace in start order with their parent, so the
+ *     time of a slow request can be split into controller, service, transaction and repository calls. The trace id
+ *     of a response is in its {@code X-Trace-Id} header.</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "traces")
+@RequiredArgsConstructor
+public class TracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final AttributeKey<String> ERROR_CODE = AttributeKey.stringKey(GlobalExceptionHandler.ERROR_CODE_TAG);
+
+    private final InMemorySpanExporter exporter;
+
+    @ReadOperation
+    public List<TraceSummary> traces(@Nullable Integer limit) {
+        Map<String, List<SpanData>> byTrace = new LinkedHashMap<>();
+        List<SpanData> spans = exporter.spans();
+        for (int i = spans.size() - 1; i >= 0; i--) {
+            SpanData span = spans.get(i);
+            byTrace.computeIfAbsent(span.getTraceId(), traceId -> new ArrayList<>()).add(span);
+        }
+        int maxTraces = limit != null ? limit : DEFAULT_LIMIT;
+        List<TraceSummary> traces = new ArrayList<>(Math.min(maxTraces, byTrace.size()));
+        for (List<SpanData> traceSpans : byTrace.values()) {
+            if (traces.size() == maxTraces) {
+                break;
+            }
+            traces.add(TraceSummary.of(traceSpans));
+        }
+        return traces;
+    }
+
+    @ReadOperation
+    public List<SpanView> trace(@Selector String traceId) {
+        return exporter.spans().stream()
+                .filter(span -> span.getTraceId().equals(traceId))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(SpanView::of)
+                .toList();
+    }
+
+    public record TraceSummary(String traceId, String name, Instant start, long durationMicros, int spans,
+                               boolean error, String errorCode) {
+
+        static TraceSummary of(List<SpanData> spans) {
+            SpanData root = spans.stream()
+                    .filter(span -> !span.getParentSpanContext().isValid())
+                    .findFirst()
+                    // the root is still running or was already dropped from the buffer
+                    .orElseGet(() -> spans.stream().min(Comparator.comparingLong(SpanData::getStartEpochNanos)).get());
+            boolean error = spans.stream().anyMatch(span -> span.getStatus().getStatusCode() == StatusCode.ERROR);
+            String errorCode = spans.stream()
+                    .map(span -> span.getAttributes().get(ERROR_CODE))
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(null);
+            return new TraceSummary(root.getTraceId(), root.getName(), instant(root.getStartEpochNanos()),
+                    micros(root), spans.size(), error || errorCode != null, errorCode);
+        }
+    }
+
+    public record SpanView(String spanId, String parentSpanId, String name, Instant start, long durationMicros,
+                           String status, Map<String, String> tags) {
+
+        static SpanView of(SpanData span) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            span.getAttributes().forEach((key, value) -> tags.put(key.getKey(), String.valueOf(value)));
+            return new SpanView(span.getSpanId(),
+                    span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                    span.getName(),
+                    instant(span.getStartEpochNanos()),
+                    micros(span),
+                    span.getStatus().getStatusCode().name(),
+                    tags);
+        }
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    private static long micros(SpanData span) {
+        return (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000;
+    }
+}
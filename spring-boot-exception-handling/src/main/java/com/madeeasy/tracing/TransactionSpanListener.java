@@ -0,0 +1,97 @@
+package com.madeeasy.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A span per database transaction, from its begin to the end of its commit or rollback, named after the transaction
+ * (the {@code @Transactional} method or the TransactionTemplate) and tagged with {@code layer=transaction} and
+ * {@code read-only}. It includes the Hibernate flush at commit, which the repository spans inside it do not.
+ * <p>
+ * Spring Boot registers every TransactionExecutionListener bean on the transaction manager. Only transactions which
+ * are really started are seen here, joining an existing transaction or running without one does not begin a span.
+ * A transaction begins and ends on the same thread, the open spans are kept per thread in begin order; a
+ * REQUIRES_NEW transaction inside another one is simply the next on the stack.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionSpanListener implements TransactionExecutionListener {
+
+    private static final ThreadLocal<Deque<OpenSpan>> OPEN_SPANS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Tracer tracer;
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        if (!Spans.sampled(tracer.currentSpan())) {
+            return;
+        }
+        Span span = tracer.nextSpan()
+                .name(spanName(transaction.getTransactionName()))
+                .tag("layer", "transaction")
+                .tag("read-only", String.valueOf(transaction.isReadOnly()))
+                .start();
+        OPEN_SPANS.get().push(new OpenSpan(transaction, span, tracer.withSpan(span)));
+    }
+
+    /**
+     * "transaction CustomerService.createCustomer" for a transaction named after its method, TransactionTemplates
+     * have no name
+     */
+    private static String spanName(String transactionName) {
+        if (!StringUtils.hasText(transactionName)) {
+            return "transaction";
+        }
+        int method = transactionName.lastIndexOf('.');
+        int type = method > 0 ? transactionName.lastIndexOf('.', method - 1) : -1;
+        return "transaction " + transactionName.substring(type + 1);
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            end(transaction, beginFailure);
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        end(transaction, commitFailure);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        end(transaction, rollbackFailure);
+    }
+
+    private void end(TransactionExecution transaction, Throwable failure) {
+        Deque<OpenSpan> openSpans = OPEN_SPANS.get();
+        for (Iterator<OpenSpan> iterator = openSpans.iterator(); iterator.hasNext(); ) {
+            OpenSpan openSpan = iterator.next();
+            if (openSpan.transaction == transaction) {
+                iterator.remove();
+                openSpan.scope.close();
+                if (failure != null) {
+                    openSpan.span.error(failure);
+                }
+                openSpan.span.end();
+                break;
+            }
+        }
+        if (openSpans.isEmpty()) {
+            OPEN_SPANS.remove();
+        }
+    }
+
+    private record OpenSpan(TransactionExecution transaction, Span span, Tracer.SpanInScope scope) {
+    }
+}
@@ -0,0 +1,16 @@
+-- ids come from a pooled sequence, Customer hands out blocks of 50 per call (allocationSize = 50)
+create sequence customer_seq start with 1 increment by 50;
+
+create table customer
+(
+    id         bigint       not null,
+    name       varchar(255),
+    email      varchar(255) not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    version    bigint       not null default 0,
+    constraint pk_customer primary key (id)
+);
+
+create index idx_customer_email on customer (email);
+create index idx_customer_created_at on customer (created_at);
@@ -0,0 +1,10 @@
+-- exact lookups by email, one customer per address (fails when the table already holds duplicates, clean them first)
+drop index idx_customer_email;
+create unique index uk_customer_email on customer (email);
+
+-- case-insensitive name prefix search: "where name_lower like 'ab%' and (name_lower, id) > (?, ?) order by name_lower, id"
+-- is a range scan of this index. name_lower is written by the application (Customer.name lower-cased with
+-- Locale.ROOT), a plain column instead of an expression index so the same migration works on H2 and PostgreSQL.
+alter table customer add column name_lower varchar(255);
+update customer set name_lower = lower(name);
+create index idx_customer_name_lower_id on customer (name_lower, id);
@@ -0,0 +1,5 @@
+-- Customer.createdAt / updatedAt are Instants, which Hibernate maps to "timestamp with time zone". The existing values
+-- are converted in the session time zone. Flyway uses the application's DataSource, whose sessions have the time zone
+-- of the JVM, the zone the values were written in when they were still java.util.Date.
+alter table customer alter column created_at set data type timestamp(6) with time zone;
+alter table customer alter column updated_at set data type timestamp(6) with time zone;
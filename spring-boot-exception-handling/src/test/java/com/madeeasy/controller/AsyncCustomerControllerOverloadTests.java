@@ -0,0 +1,110 @@
+package com.madeeasy.controller;
+
+import com.madeeasy.error.exception.ServiceOverloadedException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /async/customers when {@link AsyncRequestExecutor} is busy. Its one thread is held by a task of the test, so the
+ * first request waits in the queue of one and the second finds it full.
+ */
+@SpringBootTest(properties = {"app.async.pool-size=1", "app.async.queue-capacity=1"})
+@AutoConfigureMockMvc
+class AsyncCustomerControllerOverloadTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void occupyThePool() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        asyncRequestExecutor.read(() -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * lets the pool go and waits until it has run a task of its own, so the requests a test left in the queue are done
+     * before the next test occupies the pool again
+     */
+    @AfterEach
+    void releaseThePool() throws InterruptedException {
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                DeferredResult<Boolean> idle = asyncRequestExecutor.read(() -> true);
+                while (!idle.hasResult() && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                return;
+            } catch (ServiceOverloadedException e) {
+                // the queue is still full
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void fullQueueIsAFastServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/async/customers/summaries/1")).andExpect(request().asyncStarted());
+
+        mockMvc.perform(get("/async/customers/summaries/1"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.code").value("SERVICE_OVERLOADED"));
+    }
+
+    @Test
+    void queuedRequestWhichTimesOutIsAServiceUnavailable() throws Exception {
+        MvcResult queued = mockMvc.perform(get("/async/customers/summaries/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // what the container does when app.async.timeout is over, MockMvc has no timer of its own
+        MockAsyncContext asyncContext = (MockAsyncContext) queued.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc.perform(asyncDispatch(queued))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.code").value("REQUEST_TIMEOUT"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.madeeasy.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The endpoints below /async/customers answer like the ones below /customers, only through a DeferredResult: the
+ * first dispatch starts the request, the answer comes with the async dispatch. Checks which fail before the work is
+ * handed to {@link AsyncRequestExecutor} are answered at once.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AsyncCustomerControllerTests {
+
+    /**
+     * far above the ids handed out by the sequence in these tests
+     */
+    private static final long UNKNOWN_ID = 999_999_999L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void createdCustomerIsReadBack() throws Exception {
+        String email = uniqueEmail();
+
+        String body = async(post("/async/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ada\",\"email\":\"" + email + "\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.email").value(email))
+                .andReturn().getResponse().getContentAsString();
+        long id = JsonPath.<Number>read(body, "$.id").longValue();
+
+        async(get("/async/customers/with/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Ada"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-0\""));
+        async(get("/async/customers/summaries/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(email));
+    }
+
+    @Test
+    void unknownCustomerIsAProblem() throws Exception {
+        async(get("/async/customers/with/" + UNKNOWN_ID))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"))
+                .andExpect(jsonPath("$.instance").value("/async/customers/with/" + UNKNOWN_ID));
+        async(delete("/async/customers/" + UNKNOWN_ID))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"));
+    }
+
+    @Test
+    void pageSizeIsCappedLikeBelowCustomers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            async(post("/async/customers")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\":\"Page " + i + "\",\"email\":\"" + uniqueEmail() + "\"}"))
+                    .andExpect(status().isCreated());
+        }
+
+        async(get("/async/customers/summaries").param("size", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customers.length()").value(1));
+    }
+
+    @Test
+    void blankSearchNameIsRejectedBeforeTheWorkIsQueued() throws Exception {
+        mockMvc.perform(get("/async/customers/search").param("name", " "))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * performs the request, which must have started async processing, and returns the async dispatch
+     */
+    private ResultActions async(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private static String uniqueEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+}
@@ -0,0 +1,47 @@
+package com.madeeasy.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Failures of the work on the {@link AsyncRequestExecutor} pool end up in the {@link DeferredResult}, where
+ * GlobalExceptionHandler renders them, instead of leaving the request to run into the async timeout.
+ */
+@SpringBootTest
+class AsyncRequestExecutorTests {
+
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+
+    @Test
+    void exceptionIsTheErrorResult() throws Exception {
+        IllegalStateException failure = new IllegalStateException("read failed");
+
+        assertThat(awaitResult(asyncRequestExecutor.read(() -> {
+            throw failure;
+        }))).isSameAs(failure);
+    }
+
+    @Test
+    void errorIsTheErrorResultToo() throws Exception {
+        StackOverflowError failure = new StackOverflowError("write failed");
+
+        assertThat(awaitResult(asyncRequestExecutor.write(() -> {
+            throw failure;
+        }))).isSameAs(failure);
+    }
+
+    private static Object awaitResult(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (!result.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return result.getResult();
+    }
+}
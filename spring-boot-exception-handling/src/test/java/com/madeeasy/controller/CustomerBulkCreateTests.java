@@ -0,0 +1,81 @@
+package com.madeeasy.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /customers/bulk with NDJSON bodies. The chunks are smaller than in production so a body of a few elements
+ * spans several of them.
+ */
+@SpringBootTest(properties = "app.bulk.chunk-size=4")
+@AutoConfigureMockMvc
+class CustomerBulkCreateTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void duplicateEmailRejectsOnlyTheDuplicate() throws Exception {
+        String prefix = UUID.randomUUID().toString();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            // the element at 6 repeats the email of the element at 5, in the same chunk
+            body.append(customer("Bulk " + i, prefix + "-" + (i == 6 ? 5 : i) + "@example.com"));
+        }
+
+        bulk(body.toString())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(10))
+                .andExpect(jsonPath("$.created").value(9))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[5].id").isNumber())
+                .andExpect(jsonPath("$.items[6].id").doesNotExist())
+                .andExpect(jsonPath("$.items[6].code").value("DATA_CONFLICT"))
+                .andExpect(jsonPath("$.items[4].id").isNumber())
+                .andExpect(jsonPath("$.items[7].id").isNumber());
+    }
+
+    @Test
+    void conflictWithAnExistingCustomerDoesNotLeakTheSchema() throws Exception {
+        String email = UUID.randomUUID() + "@example.com";
+        bulk(customer("Ada", email)).andExpect(jsonPath("$.created").value(1));
+
+        bulk(customer("Grace", UUID.randomUUID() + "@example.com") + customer("Ada again", email))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[1].code").value("DATA_CONFLICT"))
+                .andExpect(jsonPath("$.items[1].errors", hasSize(1)))
+                .andExpect(jsonPath("$.items[1].errors", everyItem(not(containsStringIgnoringCase("uk_customer_email")))))
+                .andExpect(jsonPath("$.items[1].errors", everyItem(not(containsStringIgnoringCase("insert into")))));
+    }
+
+    @Test
+    void invalidAndMalformedElementsHaveTheirCodes() throws Exception {
+        bulk(customer("", UUID.randomUUID() + "@example.com") + "{\"name\":")
+                .andExpect(jsonPath("$.items[0].code").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.items[1].code").value("MALFORMED_BODY"));
+    }
+
+    private ResultActions bulk(String ndjson) throws Exception {
+        return mockMvc.perform(post("/customers/bulk")
+                .contentType("application/x-ndjson")
+                .content(ndjson));
+    }
+
+    private static String customer(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}\n";
+    }
+}
@@ -0,0 +1,124 @@
+package com.madeeasy.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags of customers ({@code "<id>-<version>"}, see {@link CustomerETag}) with If-None-Match on reads and If-Match on
+ * PUT and DELETE.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomerConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void readWithCurrentETagIsNotModified() throws Exception {
+        long id = createCustomer();
+
+        mockMvc.perform(get("/customers/with/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-0\""));
+        mockMvc.perform(get("/customers/with/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"" + id + "-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-0\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/customers/with/request-param").param("customerId", String.valueOf(id))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + id + "-0\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void readWithOutdatedETagGetsTheCustomer() throws Exception {
+        long id = createCustomer();
+        update(id, null, "Grace").andExpect(status().isOk());
+
+        mockMvc.perform(get("/customers/with/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"" + id + "-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-1\""))
+                .andExpect(jsonPath("$.name").value("Grace"));
+    }
+
+    @Test
+    void updateWithCurrentETagSucceedsAndReturnsTheNextOne() throws Exception {
+        long id = createCustomer();
+
+        update(id, "\"" + id + "-0\"", "Grace")
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-1\""))
+                .andExpect(jsonPath("$.version").value(1));
+        update(id, "*", "Hopper")
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-2\""));
+    }
+
+    @Test
+    void updateWithOutdatedOrForeignETagIsPreconditionFailed() throws Exception {
+        long id = createCustomer();
+        update(id, null, "Grace").andExpect(status().isOk());
+
+        update(id, "\"" + id + "-0\"", "Hopper")
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+        update(id, "\"" + (id + 1) + "-1\"", "Hopper").andExpect(status().isPreconditionFailed());
+        update(id, "W/\"" + id + "-1\"", "Hopper").andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/customers/with/" + id))
+                .andExpect(jsonPath("$.name").value("Grace"));
+    }
+
+    @Test
+    void deleteWithOutdatedETagKeepsTheCustomer() throws Exception {
+        long id = createCustomer();
+        update(id, null, "Grace").andExpect(status().isOk());
+
+        mockMvc.perform(delete("/customers/" + id).header(HttpHeaders.IF_MATCH, "\"" + id + "-0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+        mockMvc.perform(get("/customers/with/" + id)).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/customers/" + id).header(HttpHeaders.IF_MATCH, "\"" + id + "-1\""))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/customers/with/" + id)).andExpect(status().isNotFound());
+    }
+
+    private ResultActions update(long id, String ifMatch, String name) throws Exception {
+        MockHttpServletRequestBuilder request = put("/customers/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + name + "\",\"email\":\"" + UUID.randomUUID() + "@example.com\"}");
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request);
+    }
+
+    private long createCustomer() throws Exception {
+        String body = mockMvc.perform(post("/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ada\",\"email\":\"" + UUID.randomUUID() + "@example.com\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.<Number>read(body, "$.id").longValue();
+    }
+}
@@ -0,0 +1,119 @@
+package com.madeeasy.controller;
+
+import com.madeeasy.filter.IdempotencyFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Idempotency-Key on POST /customers through the whole stack, see {@link IdempotencyFilter}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomerIdempotencyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void retryGetsTheFirstResponseWithoutCreatingAgain() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = customerJson("Ada", uniqueEmail());
+
+        MvcResult first = create(key, body)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED))
+                .andReturn();
+        String location = first.getResponse().getHeader(HttpHeaders.LOCATION);
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        create(key, body)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED, "true"))
+                .andExpect(header().string(HttpHeaders.LOCATION, location))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().json(first.getResponse().getContentAsString(), true));
+        assertThat(location).matches("http://localhost/customers/with/\\d+");
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Ada"));
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyIsRejected() throws Exception {
+        String key = UUID.randomUUID().toString();
+        create(key, customerJson("Ada", uniqueEmail())).andExpect(status().isCreated());
+
+        create(key, customerJson("Grace", uniqueEmail()))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_KEY_REUSED"));
+    }
+
+    @Test
+    void conflictIsNotReplayed() throws Exception {
+        String email = uniqueEmail();
+        String existing = create(UUID.randomUUID().toString(), customerJson("Ada", email))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        String key = UUID.randomUUID().toString();
+        String body = customerJson("Grace", email);
+
+        create(key, body)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("DATA_CONFLICT"));
+        create(key, body)
+                .andExpect(status().isConflict())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED));
+        // once the email is free again the retry with the same key succeeds
+        mockMvc.perform(delete("/customers/" + existing.substring(existing.lastIndexOf('/') + 1)))
+                .andExpect(status().isNoContent());
+        create(key, body)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("Grace"));
+    }
+
+    @Test
+    void validationFailureIsReplayed() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = customerJson("", uniqueEmail());
+
+        create(key, body).andExpect(status().isBadRequest());
+        create(key, body)
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED, "true"))
+                .andExpect(jsonPath("$.code").value("VALIDATION_FAILED"));
+    }
+
+    private ResultActions create(String idempotencyKey, String body) throws Exception {
+        return mockMvc.perform(post("/customers")
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private static String customerJson(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}";
+    }
+
+    private static String uniqueEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+}
@@ -0,0 +1,161 @@
+package com.madeeasy.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The single-statement writes: PATCH, DELETE and POST /customers/bulk-delete. When no row was changed the service
+ * tells a missing customer (404) from one with another version (412) by looking up the version.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomerPatchAndDeleteTests {
+
+    /**
+     * far above the ids handed out by the sequence in these tests
+     */
+    private static final long UNKNOWN_ID = 999_999_999L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void patchChangesOnlyTheGivenFields() throws Exception {
+        String email = uniqueEmail();
+        long id = createCustomer("Ada", email);
+
+        patchCustomer(id, null, "{\"name\":\"Grace\"}")
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        mockMvc.perform(get("/customers/with/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Grace"))
+                .andExpect(jsonPath("$.email").value(email))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-1\""));
+        mockMvc.perform(get("/customers/search").param("name", "grac"))
+                .andExpect(jsonPath("$.customers[?(@.id == " + id + ")].name").value("Grace"));
+    }
+
+    @Test
+    void patchWithCurrentETagReturnsTheNextOne() throws Exception {
+        long id = createCustomer("Ada", uniqueEmail());
+
+        patchCustomer(id, "\"" + id + "-0\"", "{\"email\":\"" + uniqueEmail() + "\"}")
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + id + "-1\""));
+    }
+
+    @Test
+    void patchOfOutdatedVersionIsPreconditionFailed() throws Exception {
+        long id = createCustomer("Ada", uniqueEmail());
+        patchCustomer(id, null, "{\"name\":\"Grace\"}").andExpect(status().isNoContent());
+
+        patchCustomer(id, "\"" + id + "-0\"", "{\"name\":\"Hopper\"}")
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+        mockMvc.perform(get("/customers/with/" + id))
+                .andExpect(jsonPath("$.name").value("Grace"));
+    }
+
+    @Test
+    void patchOfUnknownCustomerIsNotFoundWithAndWithoutETag() throws Exception {
+        patchCustomer(UNKNOWN_ID, null, "{\"name\":\"Grace\"}")
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"));
+        patchCustomer(UNKNOWN_ID, "\"" + UNKNOWN_ID + "-0\"", "{\"name\":\"Grace\"}")
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"));
+    }
+
+    @Test
+    void patchWithBlankFieldIsRejected() throws Exception {
+        long id = createCustomer("Ada", uniqueEmail());
+
+        patchCustomer(id, null, "{\"name\":\" \"}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.errors[0].field").value("name"));
+    }
+
+    @Test
+    void deleteOfUnknownCustomerIsNotFound() throws Exception {
+        mockMvc.perform(delete("/customers/" + UNKNOWN_ID))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"));
+        mockMvc.perform(delete("/customers/" + UNKNOWN_ID).header(HttpHeaders.IF_MATCH, "\"" + UNKNOWN_ID + "-0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bulkDeleteCountsRequestedAndDeletedIds() throws Exception {
+        long first = createCustomer("Ada", uniqueEmail());
+        long second = createCustomer("Grace", uniqueEmail());
+        long kept = createCustomer("Hopper", uniqueEmail());
+
+        mockMvc.perform(post("/customers/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + first + "," + second + "," + first + ",null," + UNKNOWN_ID + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(5))
+                .andExpect(jsonPath("$.deleted").value(2));
+
+        mockMvc.perform(get("/customers/with/" + first)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/customers/with/" + second)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/customers/with/" + kept)).andExpect(status().isOk());
+    }
+
+    @Test
+    void bulkDeleteOfTooManyIdsIsRejected() throws Exception {
+        String ids = String.join(",", Collections.nCopies(1001, "1"));
+
+        mockMvc.perform(post("/customers/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ids + "]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("At most 1000 ids can be deleted at once"));
+    }
+
+    private ResultActions patchCustomer(long id, String ifMatch, String body) throws Exception {
+        MockHttpServletRequestBuilder request = patch("/customers/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request);
+    }
+
+    private long createCustomer(String name, String email) throws Exception {
+        String body = mockMvc.perform(post("/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.<Number>read(body, "$.id").longValue();
+    }
+
+    private static String uniqueEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+}
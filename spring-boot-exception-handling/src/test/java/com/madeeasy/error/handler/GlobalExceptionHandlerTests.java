@@ -0,0 +1,114 @@
+package com.madeeasy.error.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.madeeasy.error.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The problem+json bodies of {@link GlobalExceptionHandler}: type, title, status, code, detail and instance for every
+ * error, the field list for validation failures, whatever the client asked for in Accept.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class GlobalExceptionHandlerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProblemJsonHttpMessageConverter problemWriter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void unknownCustomerIsAProblemEvenWhenJsonWasAccepted() throws Exception {
+        mockMvc.perform(get("/customers/with/999999999").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("urn:problem-type:customer-not-found"))
+                .andExpect(jsonPath("$.title").value(ErrorCode.CUSTOMER_NOT_FOUND.getTitle()))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.code").value("CUSTOMER_NOT_FOUND"))
+                .andExpect(jsonPath("$.detail").isString())
+                .andExpect(jsonPath("$.instance").value("/customers/with/999999999"));
+    }
+
+    @Test
+    void invalidBodyListsEveryField() throws Exception {
+        mockMvc.perform(post("/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"\",\"email\":\" \"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("urn:problem-type:validation-failed"))
+                .andExpect(jsonPath("$.code").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.detail").value("2 fields are invalid"))
+                .andExpect(jsonPath("$.instance").value("/customers"))
+                .andExpect(jsonPath("$.errors[*].field", containsInAnyOrder("name", "email")))
+                .andExpect(jsonPath("$.errors[0].code").isString())
+                .andExpect(jsonPath("$.errors[0].message").isString());
+    }
+
+    @Test
+    void malformedJsonIsAMalformedBody() throws Exception {
+        mockMvc.perform(post("/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code").value("MALFORMED_BODY"))
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.instance").value("/customers"));
+    }
+
+    @Test
+    void missingParameterIsNamed() throws Exception {
+        mockMvc.perform(get("/customers/with/request-param"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("MISSING_PARAMETER"))
+                .andExpect(jsonPath("$.detail").value(containsString("customerId")));
+    }
+
+    @Test
+    void unsupportedMethodIsMethodNotAllowed() throws Exception {
+        mockMvc.perform(post("/customers/page").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().string(HttpHeaders.ALLOW, containsString("GET")))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("urn:problem-type:method-not-allowed"))
+                .andExpect(jsonPath("$.status").value(405))
+                .andExpect(jsonPath("$.code").value("METHOD_NOT_ALLOWED"));
+    }
+
+    @Test
+    void streamingWriterWritesWhatDatabindWrites() throws Exception {
+        ApiProblem problem = new ApiProblem(ErrorCode.VALIDATION_FAILED, HttpStatus.BAD_REQUEST, "1 field is \"invalid\"",
+                List.of(new FieldViolation("name", "NotBlank", "must not be blank")));
+        problem.setInstance(URI.create("/customers"));
+        problem.setProperty("retryAfterSeconds", 2);
+
+        assertThat(objectMapper.readTree(problemWriter.toBytes(problem)))
+                .isEqualTo(objectMapper.readTree(objectMapper.writeValueAsBytes(problem)));
+    }
+}
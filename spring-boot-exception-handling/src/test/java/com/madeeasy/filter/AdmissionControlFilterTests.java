@@ -0,0 +1,60 @@
+package com.madeeasy.filter;
+
+import com.madeeasy.error.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AdmissionControlFilter} without a Spring context. The read group has no permits at all, so every read it
+ * is responsible for is shed.
+ */
+class AdmissionControlFilterTests {
+
+    /**
+     * renders the rejection with its status only, GlobalExceptionHandler does the real rendering
+     */
+    private final HandlerExceptionResolver exceptionResolver = (request, response, handler, ex) -> {
+        response.setStatus(((ServiceOverloadedException) ex).getStatus().value());
+        return new ModelAndView();
+    };
+    private final FilterChain ok = (request, response) -> ((HttpServletResponse) response).setStatus(200);
+
+    @Test
+    void shedsTheBlockingAndTheAsyncApiAlike() throws Exception {
+        AdmissionControlFilter filter = filter(true);
+
+        assertThat(get(filter, "/customers/with/1").getStatus()).isEqualTo(503);
+        assertThat(get(filter, "/async/customers/with/1").getStatus()).isEqualTo(503);
+        assertThat(get(filter, "/actuator/health").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void letsEverythingThroughWhenDisabled() throws Exception {
+        AdmissionControlFilter filter = filter(false);
+
+        assertThat(get(filter, "/customers/with/1").getStatus()).isEqualTo(200);
+        assertThat(get(filter, "/async/customers/with/1").getStatus()).isEqualTo(200);
+    }
+
+    private AdmissionControlFilter filter(boolean enabled) {
+        return new AdmissionControlFilter(exceptionResolver, new SimpleMeterRegistry(), enabled,
+                List.of("/customers", "/async/customers"), 503, 0, Duration.ofSeconds(1), 20, Duration.ofSeconds(2));
+    }
+
+    private MockHttpServletResponse get(AdmissionControlFilter filter, String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", path), response, ok);
+        return response;
+    }
+}
@@ -0,0 +1,186 @@
+package com.madeeasy.filter;
+
+import com.madeeasy.error.exception.IdempotencyKeyConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link IdempotencyFilter} without a Spring context, the chain behind it is a lambda which counts how often the
+ * request really got executed. The end-to-end behavior on POST /customers is in CustomerIdempotencyTests.
+ */
+class IdempotencyFilterTests {
+
+    private static final String BODY = "{\"name\":\"Ada\",\"email\":\"ada@example.com\"}";
+
+    /**
+     * renders the filter's own errors with their status only, GlobalExceptionHandler does the real rendering
+     */
+    private final HandlerExceptionResolver exceptionResolver = (request, response, handler, ex) -> {
+        response.setStatus(ex instanceof IdempotencyKeyConflictException ? 422 : 409);
+        return new ModelAndView();
+    };
+    private final IdempotencyFilter filter = new IdempotencyFilter(
+            new IdempotencyStore(100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+            exceptionResolver, Set.of("/customers"), Duration.ofMillis(200));
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void replaysStatusBodyLocationAndETagOfTheFirstResponse() throws Exception {
+        FilterChain created = (request, response) -> {
+            executions.incrementAndGet();
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(201);
+            httpResponse.setContentType("application/json");
+            httpResponse.setHeader(HttpHeaders.LOCATION, "http://localhost/customers/with/7");
+            httpResponse.setHeader(HttpHeaders.ETAG, "\"7-0\"");
+            response.getOutputStream().write("{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        MockHttpServletResponse first = post("/customers", "key-1", BODY, created);
+        MockHttpServletResponse retry = post("/customers", "key-1", BODY, created);
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED)).isNull();
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":7}");
+        assertThat(retry.getContentType()).isEqualTo("application/json");
+        assertThat(retry.getHeader(HttpHeaders.LOCATION)).isEqualTo("http://localhost/customers/with/7");
+        assertThat(retry.getHeader(HttpHeaders.ETAG)).isEqualTo("\"7-0\"");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+    }
+
+    @Test
+    void replaysValidationFailures() throws Exception {
+        FilterChain invalid = status(400);
+
+        post("/customers", "key-1", BODY, invalid);
+        MockHttpServletResponse retry = post("/customers", "key-1", BODY, invalid);
+
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(400);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+    }
+
+    @Test
+    void executesAgainAfterConflictOverloadOrServerError() throws Exception {
+        for (int status : new int[]{409, 429, 503, 500}) {
+            executions.set(0);
+            String key = "key-" + status;
+
+            post("/customers", key, BODY, status(status));
+            MockHttpServletResponse retry = post("/customers", key, BODY, status(201));
+
+            assertThat(executions).as("executions after a %d", status).hasValue(2);
+            assertThat(retry.getStatus()).isEqualTo(201);
+            assertThat(retry.getHeader(IdempotencyFilter.REPLAYED)).isNull();
+        }
+    }
+
+    @Test
+    void givesTheKeyUpWhenTheRequestFailsWithAnError() throws Exception {
+        FilterChain failing = (request, response) -> {
+            executions.incrementAndGet();
+            throw new StackOverflowError();
+        };
+
+        assertThatThrownBy(() -> post("/customers", "key-1", BODY, failing)).isInstanceOf(StackOverflowError.class);
+        long start = System.nanoTime();
+        MockHttpServletResponse retry = post("/customers", "key-1", BODY, status(201));
+
+        assertThat(executions).hasValue(2);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        // it did not wait for the first request until the wait timeout
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(200));
+    }
+
+    @Test
+    void rejectsTheSameKeyWithAnotherBody() throws Exception {
+        post("/customers", "key-1", BODY, status(201));
+        MockHttpServletResponse other = post("/customers", "key-1", BODY.replace("Ada", "Grace"), status(201));
+
+        assertThat(executions).hasValue(1);
+        assertThat(other.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void retryWaitingTooLongForTheFirstRequestIsAConflict() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        IdempotencyFilter waitingFilter = new IdempotencyFilter(store, exceptionResolver, Set.of("/customers"),
+                Duration.ofMillis(50));
+        // the first request claimed the key and is still running
+        MockHttpServletRequest first = request("/customers", "key-1", BODY);
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        waitingFilter.doFilter(first, firstResponse, (request, response) -> {
+            MockHttpServletResponse retry = new MockHttpServletResponse();
+            waitingFilter.doFilter(request("/customers", "key-1", BODY), retry, status(201));
+            assertThat(retry.getStatus()).isEqualTo(409);
+            ((HttpServletResponse) response).setStatus(201);
+        });
+
+        assertThat(executions).hasValue(0);
+        assertThat(firstResponse.getStatus()).isEqualTo(201);
+    }
+
+    @Test
+    void matchesThePathWithoutTrailingSlashMatrixParametersAndContextPath() throws Exception {
+        post("/customers", "key-1", BODY, status(201));
+
+        assertThat(post("/customers/", "key-1", BODY, status(201)).getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+        assertThat(post("/customers;v=1", "key-1", BODY, status(201)).getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+        MockHttpServletRequest withContextPath = request("/api/customers", "key-1", BODY);
+        withContextPath.setContextPath("/api");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(withContextPath, response, status(201));
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void leavesOtherPathsAndRequestsWithoutKeyAlone() throws Exception {
+        post("/customers/bulk", "key-1", BODY, status(200));
+        post("/customers/bulk", "key-1", BODY, status(200));
+        post("/customers", null, BODY, status(201));
+        post("/customers", null, BODY, status(201));
+
+        assertThat(executions).hasValue(4);
+    }
+
+    private FilterChain status(int status) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(status);
+        };
+    }
+
+    private MockHttpServletResponse post(String path, String idempotencyKey, String body, FilterChain chain)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(path, idempotencyKey, body), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String idempotencyKey, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        if (idempotencyKey != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
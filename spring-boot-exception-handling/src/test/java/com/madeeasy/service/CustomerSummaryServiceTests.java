@@ -0,0 +1,75 @@
+package com.madeeasy.service;
+
+import com.madeeasy.dto.CustomerSummary;
+import com.madeeasy.dto.CustomerSummaryPage;
+import com.madeeasy.entity.Customer;
+import com.madeeasy.error.exception.CustomerNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Both {@link ReadModel}s of {@link CustomerSummaryService} read the same summaries, so switching
+ * app.read-model.lookup or app.read-model.page only changes how fast they are read.
+ */
+@SpringBootTest
+class CustomerSummaryServiceTests {
+
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void lookupIsTheSameWithJpqlAndJdbc() {
+        Customer customer = createCustomer("Ada");
+
+        CustomerSummary expected = new CustomerSummary(customer.getId(), "Ada", customer.getEmail());
+        assertThat(customerSummaryService.getCustomerSummary(customer.getId())).isEqualTo(expected);
+        assertThat(customerSummaryService.getCustomerSummary(customer.getId(), ReadModel.JPQL)).isEqualTo(expected);
+        assertThat(customerSummaryService.getCustomerSummary(customer.getId(), ReadModel.JDBC)).isEqualTo(expected);
+    }
+
+    @Test
+    void unknownCustomerIsNotFoundWithJpqlAndJdbc() {
+        for (ReadModel readModel : ReadModel.values()) {
+            assertThatThrownBy(() -> customerSummaryService.getCustomerSummary(999_999_999L, readModel))
+                    .isInstanceOf(CustomerNotFoundException.class);
+        }
+    }
+
+    @Test
+    void pagesAreTheSameWithJpqlAndJdbc() {
+        for (int i = 0; i < 5; i++) {
+            createCustomer("Customer " + i);
+        }
+
+        assertThat(allPages(ReadModel.JDBC)).isEqualTo(allPages(ReadModel.JPQL)).hasSizeGreaterThanOrEqualTo(5);
+    }
+
+    private List<CustomerSummary> allPages(ReadModel readModel) {
+        List<CustomerSummary> summaries = new ArrayList<>();
+        String cursor = null;
+        do {
+            CustomerSummaryPage page = customerSummaryService.getCustomerSummariesPage(cursor, 2, readModel);
+            summaries.addAll(page.customers());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return summaries;
+    }
+
+    private Customer createCustomer(String name) {
+        return customerService.createCustomer(Customer.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .build());
+    }
+}
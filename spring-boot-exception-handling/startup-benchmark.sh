@@ -0,0 +1,70 @@
+#!/bin/sh
+# Time from process start to the first successful request, for every startup variant of the application.
+#
+# Build first:
+#   ./mvnw -Pfast-start package                  (jar, AOT classes, AppCDS archive)
+#   ./mvnw -Pnative,fast-start native:compile    (optional, native executable, needs GraalVM)
+#
+# Usage: ./startup-benchmark.sh [runs per variant, default 5]
+# Variants whose artifacts are missing are skipped. PORT (default 8080) must be free.
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+URL="http://localhost:$PORT/customers/example?param=1"
+MAIN=com.madeeasy.SpringBootExceptionHandlingApplication
+JAR=$(ls target/*.jar 2>/dev/null | grep -v original | head -n 1)
+CDS=target/fast-start/app.jsa
+CDS_JAR=$(ls target/fast-start/*-fast-start.jar 2>/dev/null | head -n 1)
+CLASSPATH_FILE=target/fast-start/classpath.txt
+NATIVE=target/spring-boot-exception-handling
+
+now_ms() {
+  date +%s%3N
+}
+
+# starts "$@" in the background, waits for the first 2xx answer and prints the milliseconds it took
+measure() {
+  start=$(now_ms)
+  "$@" --server.port="$PORT" >/dev/null 2>&1 &
+  pid=$!
+  while ! curl -sf -o /dev/null "$URL"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "failed"
+      return
+    fi
+    sleep 0.01
+  done
+  echo $(($(now_ms) - start))
+  kill "$pid"
+  wait "$pid" 2>/dev/null
+}
+
+run_variant() {
+  name=$1
+  shift
+  times=""
+  i=0
+  while [ "$i" -lt "$RUNS" ]; do
+    times="$times $(measure "$@")"
+    i=$((i + 1))
+  done
+  sorted=$(echo $times | tr ' ' '\n' | sort -n)
+  printf '%-18s min %6s ms   median %6s ms   runs:%s\n' "$name" \
+    "$(echo "$sorted" | head -n 1)" "$(echo "$sorted" | sed -n "$(((RUNS + 1) / 2))p")" "$times"
+}
+
+if [ -z "$JAR" ]; then
+  echo "no jar in target, build it with ./mvnw -Pfast-start package" >&2
+  exit 1
+fi
+
+run_variant "jar" java -jar "$JAR"
+run_variant "jar+lazy" java -jar "$JAR" --spring.profiles.active=fast-start
+run_variant "jar+lazy+aot" java -Dspring.aot.enabled=true -jar "$JAR" --spring.profiles.active=fast-start
+if [ -f "$CDS" ] && [ -n "$CDS_JAR" ] && [ -f "$CLASSPATH_FILE" ]; then
+  run_variant "lazy+aot+appcds" java -XX:SharedArchiveFile="$CDS" -Xshare:auto -Dspring.aot.enabled=true \
+    -classpath "$CDS_JAR:$(cat "$CLASSPATH_FILE")" "$MAIN" --spring.profiles.active=fast-start
+fi
+if [ -x "$NATIVE" ]; then
+  run_variant "native" "$NATIVE" --spring.profiles.active=fast-start
+fi